@@ -0,0 +1,47 @@
+package com.ifpb;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark da escolha da mensagem aleatória (número 0)
+ * Compara o antigo new Random() por requisição com as seleções atuais. Para
+ * verificar a escalabilidade, rode com números crescentes de threads e compare
+ * a vazão total: java -jar benchmarks.jar AleatoriaBenchmark -t 1 (depois -t 2, 4, 8...)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AleatoriaBenchmark {
+
+    @Param({"100000"})
+    public int tamanhoBanco;
+
+    /**
+     * Cada thread do benchmark faz o papel de uma conexão com seu próprio cursor
+     */
+    @State(Scope.Thread)
+    public static class Conexao {
+        final SelecaoAleatoria semRepeticao = SelecaoAleatoria.criar("sem-repeticao");
+    }
+
+    @Benchmark
+    public int novoRandomPorRequisicao() {
+        return new Random().nextInt(tamanhoBanco);
+    }
+
+    @Benchmark
+    public int uniforme() {
+        return SelecaoAleatoria.UNIFORME.proximoIndice(tamanhoBanco);
+    }
+
+    @Benchmark
+    public int semRepeticao(Conexao conexao) {
+        return conexao.semRepeticao.proximoIndice(tamanhoBanco);
+    }
+}
@@ -0,0 +1,46 @@
+package com.ifpb;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark da busca de mensagens em cada tipo de armazenamento
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BancoBenchmark {
+
+    @Param({"10", "100000"})
+    public int tamanhoBanco;
+
+    @Param({"memoria", "mapeado"})
+    public String armazenamento;
+
+    private BancoMensagens banco;
+
+    @Setup(Level.Trial)
+    public void carregarBanco() throws IOException {
+        Path arquivo = BancoSintetico.gerar(tamanhoBanco);
+        banco = armazenamento.equals("mapeado")
+                ? BancoMapeado.abrir(arquivo.toString())
+                : BancoMemoria.carregar(arquivo.toString());
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int indice = 0;
+    }
+
+    @Benchmark
+    public String buscarMensagem(Cursor cursor) {
+        cursor.indice = (cursor.indice + 1) % tamanhoBanco;
+        return banco.mensagem(cursor.indice);
+    }
+}
@@ -0,0 +1,38 @@
+package com.ifpb;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Gera arquivos de mensagens sintéticos para os benchmarks
+ * As frases variam de tamanho e incluem acentuação, como o banco real.
+ */
+final class BancoSintetico {
+    private static final String[] AUTORES = {
+            "Sócrates", "Aristóteles", "René Descartes", "Jean-Paul Sartre", "Mestre Splinter"
+    };
+
+    private BancoSintetico() {
+    }
+
+    /**
+     * Cria um arquivo temporário no formato de mensagens.txt com o total pedido
+     */
+    static Path gerar(int total) throws IOException {
+        Path arquivo = Files.createTempFile("mensagens-" + total + "-", ".txt");
+        arquivo.toFile().deleteOnExit();
+        Paths.get(arquivo + ".idx").toFile().deleteOnExit();
+
+        try (BufferedWriter saida = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8)) {
+            saida.write(Integer.toString(total));
+            saida.newLine();
+            for (int i = 1; i <= total; i++) {
+                saida.write("Reflexão sintética número " + i + " sobre a " + "vida ".repeat(i % 12) +
+                        "- " + AUTORES[i % AUTORES.length]);
+                saida.newLine();
+            }
+        }
+        return arquivo;
+    }
+}
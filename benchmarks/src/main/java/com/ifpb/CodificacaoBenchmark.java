@@ -0,0 +1,63 @@
+package com.ifpb;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark da codificação de respostas (etapa de enviarResposta)
+ * Compara a codificação por requisição (formatação + writeUTF, como antes do
+ * cache) e a v2 com a escrita de um quadro já pré-codificado.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodificacaoBenchmark {
+
+    @Param({"Só sei que nada sei. - Sócrates",
+            "A felicidade depende mais do interior do que do exterior, e quem procura fora encontra apenas o "
+                    + "reflexo do que já carrega. - Aristóteles"})
+    public String mensagem;
+
+    private String resposta;
+    private byte[] quadroPreCodificado;
+    private DataOutputStream saida;
+
+    @Setup
+    public void preparar() {
+        resposta = "OK|" + mensagem;
+        quadroPreCodificado = ServidorMensagens.codificarResposta(resposta);
+        saida = new DataOutputStream(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public String formatarResposta() {
+        return ServidorMensagens.formatarResposta(resposta);
+    }
+
+    @Benchmark
+    public byte[] codificarRespostaV1() {
+        return ServidorMensagens.codificarResposta(resposta);
+    }
+
+    @Benchmark
+    public byte[] codificarRespostaV2() {
+        return Protocolo.codificarRespostaV2(resposta);
+    }
+
+    @Benchmark
+    public void enviarFormatandoPorRequisicao() throws IOException {
+        saida.writeUTF(ServidorMensagens.formatarResposta(resposta));
+    }
+
+    @Benchmark
+    public void enviarQuadroPreCodificado() throws IOException {
+        saida.write(quadroPreCodificado);
+    }
+}
@@ -0,0 +1,52 @@
+package com.ifpb;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark da pesquisa no índice invertido, com os 10 melhores resultados
+ * Cobre um termo presente em quase todas as mensagens, um termo raro, o filtro
+ * de autor combinado com um termo e uma interseção sem resultados.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PesquisaBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int tamanhoBanco;
+
+    private IndicePesquisa indice;
+
+    @Setup(Level.Trial)
+    public void construirIndice() throws IOException {
+        Path arquivo = BancoSintetico.gerar(tamanhoBanco);
+        indice = IndicePesquisa.construir(BancoMemoria.carregar(arquivo.toString()));
+    }
+
+    @Benchmark
+    public int[] termoComum() {
+        return indice.pesquisar("vida", "", 10);
+    }
+
+    @Benchmark
+    public int[] termoRaro() {
+        return indice.pesquisar("número " + (tamanhoBanco / 2), "", 10);
+    }
+
+    @Benchmark
+    public int[] termoComAutor() {
+        return indice.pesquisar("reflexão vida", "Sartre", 10);
+    }
+
+    @Benchmark
+    public int[] semResultados() {
+        return indice.pesquisar("descartes", "Splinter", 10);
+    }
+}
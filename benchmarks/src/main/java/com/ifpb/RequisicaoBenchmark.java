@@ -0,0 +1,77 @@
+package com.ifpb;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark do caminho de requisição do ServidorMensagens
+ * Cobre processarRequisicao, a obtenção do quadro de resposta (v1 e v2) e o
+ * caminho de mensagem aleatória, para cada armazenamento e tamanho de banco.
+ * O tamanho do banco pode ser alterado com -p tamanhoBanco=N.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequisicaoBenchmark {
+
+    @Param({"10", "100000"})
+    public int tamanhoBanco;
+
+    @Param({"memoria", "mapeado"})
+    public String armazenamento;
+
+    @Setup(Level.Trial)
+    public void carregarBanco() throws IOException {
+        Path arquivo = BancoSintetico.gerar(tamanhoBanco);
+        ServidorMensagens.carregarMensagens(arquivo.toString(), armazenamento);
+    }
+
+    /**
+     * Percorre os números válidos do banco, um por chamada, em cada thread
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int proximo = 0;
+
+        int numero(int total) {
+            proximo = proximo % total + 1;
+            return proximo;
+        }
+    }
+
+    @Benchmark
+    public String processarRequisicao(Cursor cursor) {
+        return ServidorMensagens.processarRequisicao(cursor.numero(tamanhoBanco));
+    }
+
+    @Benchmark
+    public byte[] quadroRespostaV1(Cursor cursor) {
+        return ServidorMensagens.obterQuadroResposta(cursor.numero(tamanhoBanco), Protocolo.PROTOCOLO_V1);
+    }
+
+    @Benchmark
+    public byte[] quadroRespostaV2(Cursor cursor) {
+        return ServidorMensagens.obterQuadroResposta(cursor.numero(tamanhoBanco), Protocolo.PROTOCOLO_V2);
+    }
+
+    @Benchmark
+    public byte[] quadroRespostaInvalida() {
+        return ServidorMensagens.obterQuadroResposta(-1, Protocolo.PROTOCOLO_V1);
+    }
+
+    @Benchmark
+    public String processarAleatoria() {
+        return ServidorMensagens.processarRequisicao(0);
+    }
+
+    @Benchmark
+    public byte[] quadroRespostaAleatoria() {
+        return ServidorMensagens.obterQuadroResposta(0, Protocolo.PROTOCOLO_V1);
+    }
+}
@@ -0,0 +1,86 @@
+package com.ifpb;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Anel de hashing consistente que distribui os números de mensagem entre os nós
+ * Cada nó ocupa PONTOS_POR_NO posições do anel, derivadas de "host:porta", e a
+ * mensagem pertence ao primeiro nó encontrado a partir do hash do seu número.
+ * Assim a divisão é a mesma em todos os clientes, e quando um nó sai só as
+ * mensagens dele mudam de dono (para o próximo nó do anel); as outras
+ * continuam no nó que já as tem quentes em cache.
+ */
+final class AnelConsistente {
+    static final int PONTOS_POR_NO = 160;
+
+    private final long[] posicoes; // Ordenadas
+    private final int[] donos; // Índice do nó de cada posição
+    private final int nos;
+
+    AnelConsistente(List<String> identificadores) {
+        nos = identificadores.size();
+        long[][] pontos = new long[nos * PONTOS_POR_NO][];
+        for (int no = 0; no < nos; no++) {
+            for (int i = 0; i < PONTOS_POR_NO; i++) {
+                String chave = identificadores.get(no) + "#" + i;
+                pontos[no * PONTOS_POR_NO + i] = new long[]{hashTexto(chave), no};
+            }
+        }
+        Arrays.sort(pontos, (a, b) -> Long.compare(a[0], b[0]));
+
+        posicoes = new long[pontos.length];
+        donos = new int[pontos.length];
+        for (int i = 0; i < pontos.length; i++) {
+            posicoes[i] = pontos[i][0];
+            donos[i] = (int) pontos[i][1];
+        }
+    }
+
+    int nos() {
+        return nos;
+    }
+
+    /**
+     * Primeiro nó disponível no anel a partir da mensagem, ou -1 se nenhum está
+     */
+    int dono(int numeroMensagem, boolean[] disponiveis) {
+        int inicio = Arrays.binarySearch(posicoes, misturar(numeroMensagem));
+        if (inicio < 0) {
+            inicio = -inicio - 1;
+        }
+        // Percorre o anel até achar um nó disponível; com todos fora, dá uma volta completa
+        for (int i = 0; i < posicoes.length; i++) {
+            int dono = donos[(inicio + i) % posicoes.length];
+            if (disponiveis[dono]) {
+                return dono;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * FNV-1a de 64 bits seguido da mistura final, para espalhar chaves parecidas
+     */
+    private static long hashTexto(String texto) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : texto.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return misturar(hash);
+    }
+
+    /**
+     * Finalizador do MurmurHash3: números consecutivos caem longe uns dos outros
+     */
+    private static long misturar(long valor) {
+        valor ^= valor >>> 33;
+        valor *= 0xff51afd7ed558ccdL;
+        valor ^= valor >>> 33;
+        valor *= 0xc4ceb9fe1a85ec53L;
+        valor ^= valor >>> 33;
+        return valor;
+    }
+}
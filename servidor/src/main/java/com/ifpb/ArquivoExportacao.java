@@ -0,0 +1,208 @@
+package com.ifpb;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32C;
+
+/**
+ * Arquivo de exportação de um snapshot do banco
+ * Gerado uma vez por carga, já no formato do corpo da resposta do comando
+ * EXPORTAR ([tamanho:varint][texto UTF-8] por mensagem), para que o servidor
+ * envie qualquer faixa com FileChannel.transferTo: os bytes vão do cache de
+ * páginas do kernel direto para o socket, sem passar pelo heap.
+ *
+ * O checksum (CRC32C do arquivo inteiro) identifica o conteúdo do banco mesmo
+ * entre reinícios do servidor, quando a versão do snapshot recomeça de 1.
+ *
+ * O canal é compartilhado pelas conexões (transferTo com posição explícita) e
+ * tem contagem de referências: o snapshot guarda uma, cada envio em andamento
+ * outra, e o arquivo temporário é fechado e apagado quando a última é liberada.
+ */
+final class ArquivoExportacao {
+    private final FileChannel canal;
+    private final long[] inicios; // Posição de cada registro; inicios[total] é o tamanho do arquivo
+    private final long checksum;
+    private final AtomicInteger referencias = new AtomicInteger(1);
+
+    private ArquivoExportacao(FileChannel canal, long[] inicios, long checksum) {
+        this.canal = canal;
+        this.inicios = inicios;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Escreve o arquivo de exportação do banco em um arquivo temporário
+     */
+    static ArquivoExportacao gerar(BancoMensagens banco) throws IOException {
+        Path arquivo = Files.createTempFile("mensagens-", ".exportacao");
+        try {
+            int total = banco.total();
+            long[] inicios = new long[total + 1];
+            CRC32C crc = new CRC32C();
+            byte[] varint = new byte[5];
+            long posicao = 0;
+
+            try (OutputStream saida = new BufferedOutputStream(Files.newOutputStream(arquivo), 64 * 1024)) {
+                for (int i = 0; i < total; i++) {
+                    inicios[i] = posicao;
+                    byte[] texto = banco.mensagem(i).getBytes(StandardCharsets.UTF_8);
+                    int bytesVarint = Protocolo.escreverVarint(varint, 0, texto.length);
+                    saida.write(varint, 0, bytesVarint);
+                    saida.write(texto);
+                    crc.update(varint, 0, bytesVarint);
+                    crc.update(texto);
+                    posicao += bytesVarint + texto.length;
+                }
+            }
+            inicios[total] = posicao;
+
+            // Apagado ao fechar o canal, que fica aberto enquanto houver referências
+            FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+            return new ArquivoExportacao(canal, inicios, crc.getValue());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(arquivo);
+            throw e;
+        }
+    }
+
+    /**
+     * CRC32C do conteúdo que gerar() escreveria, sem criar o arquivo
+     * (identifica o banco quando a exportação está desativada)
+     */
+    static long calcularChecksum(BancoMensagens banco) {
+        CRC32C crc = new CRC32C();
+        byte[] varint = new byte[5];
+        for (int i = 0; i < banco.total(); i++) {
+            byte[] texto = banco.mensagem(i).getBytes(StandardCharsets.UTF_8);
+            crc.update(varint, 0, Protocolo.escreverVarint(varint, 0, texto.length));
+            crc.update(texto);
+        }
+        return crc.getValue();
+    }
+
+    int total() {
+        return inicios.length - 1;
+    }
+
+    long checksum() {
+        return checksum;
+    }
+
+    long tamanho() {
+        return inicios[total()];
+    }
+
+    /**
+     * Reserva o arquivo para um envio; false se ele já foi fechado
+     */
+    boolean adquirir() {
+        while (true) {
+            int atuais = referencias.get();
+            if (atuais == 0) {
+                return false;
+            }
+            if (referencias.compareAndSet(atuais, atuais + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Devolve uma referência; a última fecha o canal e apaga o arquivo
+     */
+    void liberar() {
+        if (referencias.decrementAndGet() == 0) {
+            try {
+                canal.close();
+            } catch (IOException e) {
+                System.err.println("[BANCO] Erro ao apagar arquivo de exportação: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Resposta ao comando EXPORTAR para a faixa pedida (inicio a partir de 1,
+     * quantidade 0 até o fim). O chamador já deve ter adquirido o arquivo; se a
+     * resposta não tem corpo ele é liberado aqui, senão ao terminar o envio.
+     */
+    Envio responder(int inicio, int quantidade, long checksumConhecido, long versaoBanco) {
+        int total = total();
+        if (quantidade == 0) {
+            quantidade = total - inicio + 1;
+        }
+        if (inicio < 1 || quantidade < 1 || inicio > total || quantidade > total - inicio + 1) {
+            liberar();
+            return Envio.semCorpo(Protocolo.EXPORTACAO_FAIXA_INVALIDA, versaoBanco, checksum, total);
+        }
+        if (checksumConhecido == checksum) {
+            liberar();
+            return Envio.semCorpo(Protocolo.EXPORTACAO_NAO_MODIFICADO, versaoBanco, checksum, total);
+        }
+        long posicao = inicios[inicio - 1];
+        long tamanho = inicios[inicio - 1 + quantidade] - posicao;
+        byte[] cabecalho = Protocolo.cabecalhoExportacao(Protocolo.EXPORTACAO_DADOS, versaoBanco, checksum,
+                total, inicio, quantidade, tamanho);
+        return new Envio(cabecalho, this, posicao, tamanho, quantidade);
+    }
+
+    /**
+     * Cabeçalho da resposta e, se houver corpo, os bytes do arquivo ainda por
+     * enviar, que podem ser transferidos em várias chamadas (canal não bloqueante)
+     */
+    static final class Envio {
+        final byte[] cabecalho;
+        final int quantidade; // Mensagens no corpo
+        private final ArquivoExportacao arquivo; // Nulo se não há corpo
+        private long posicao;
+        private long restante;
+        private boolean liberado = false;
+
+        private Envio(byte[] cabecalho, ArquivoExportacao arquivo, long posicao, long tamanho, int quantidade) {
+            this.cabecalho = cabecalho;
+            this.arquivo = arquivo;
+            this.posicao = posicao;
+            this.restante = tamanho;
+            this.quantidade = quantidade;
+        }
+
+        static Envio semCorpo(byte status, long versaoBanco, long checksum, int total) {
+            return new Envio(Protocolo.cabecalhoExportacao(status, versaoBanco, checksum, total, 0, 0, 0),
+                    null, 0, 0, 0);
+        }
+
+        /**
+         * Transfere o que o destino aceitar agora e retorna os bytes enviados
+         */
+        long transferir(WritableByteChannel destino) throws IOException {
+            long enviados = arquivo.canal.transferTo(posicao, restante, destino);
+            posicao += enviados;
+            restante -= enviados;
+            if (restante == 0) {
+                liberar();
+            }
+            return enviados;
+        }
+
+        boolean concluido() {
+            return restante == 0;
+        }
+
+        /**
+         * Libera o arquivo; chamado ao concluir ou ao abandonar o envio (conexão fechada)
+         */
+        void liberar() {
+            if (arquivo != null && !liberado) {
+                liberado = true;
+                arquivo.liberar();
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.ifpb;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Banco de Mensagens mapeado em memória
+ * O arquivo de mensagens é mapeado com FileChannel.map e um índice com o
+ * início de cada linha é mantido em um arquivo auxiliar (".idx"), também
+ * mapeado. A mensagem N é lida fatiando o mapeamento, então o uso de heap
+ * não depende do tamanho do banco e a partida custa apenas abrir o índice.
+ *
+ * Como o próprio arquivo é mapeado, ele deve ser substituído por renomeação
+ * atômica (gravar em um temporário e renomear), nunca truncado ou regravado
+ * no lugar: isso invalidaria as páginas lidas pelos snapshots em uso (SIGBUS).
+ * Uma recarga que encontra o mesmo arquivo (mesmo inode) alterado é recusada.
+ *
+ * Formato do índice: [magico:int][versao:int][tamanhoArquivo:long]
+ * [ultimaModificacao:long][total:int][inicios:long x (total + 1)]
+ */
+final class BancoMapeado implements BancoMensagens {
+    private static final int MAGICO = 0x4D534749; // "MSGI"
+    private static final int VERSAO_INDICE = 1;
+    private static final int TAMANHO_CABECALHO = 4 + 4 + 8 + 8 + 4;
+
+    private final MappedByteBuffer dados;
+    private final LongBuffer inicios;
+    private final int total;
+    private final Object chaveArquivo; // Identidade do arquivo mapeado (inode); null se a plataforma não informa
+
+    private BancoMapeado(MappedByteBuffer dados, LongBuffer inicios, int total, Object chaveArquivo) {
+        this.dados = dados;
+        this.inicios = inicios;
+        this.total = total;
+        this.chaveArquivo = chaveArquivo;
+    }
+
+    /**
+     * Mapeia o arquivo de mensagens, reaproveitando o índice auxiliar se ele
+     * corresponder ao arquivo atual ou reconstruindo-o caso contrário
+     */
+    static BancoMapeado abrir(String nomeArquivo) throws IOException {
+        Path arquivo = Paths.get(nomeArquivo);
+        Path arquivoIndice = Paths.get(nomeArquivo + ".idx");
+
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho > Integer.MAX_VALUE) {
+                throw new IOException("Arquivo maior que 2 GB não suportado: " + nomeArquivo);
+            }
+            BasicFileAttributes atributos = Files.readAttributes(arquivo, BasicFileAttributes.class);
+            long modificacao = atributos.lastModifiedTime().toMillis();
+            MappedByteBuffer dados = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+
+            if (!indiceValido(arquivoIndice, tamanho, modificacao)) {
+                System.out.println("Construindo índice " + arquivoIndice + "...");
+                construirIndice(dados, arquivoIndice, tamanho, modificacao);
+            }
+
+            try (FileChannel canalIndice = FileChannel.open(arquivoIndice, StandardOpenOption.READ)) {
+                MappedByteBuffer indice = canalIndice.map(FileChannel.MapMode.READ_ONLY, 0, canalIndice.size());
+                int total = indice.getInt(TAMANHO_CABECALHO - 4);
+                LongBuffer inicios = indice.position(TAMANHO_CABECALHO).slice().asLongBuffer();
+                return new BancoMapeado(dados, inicios, total, atributos.fileKey());
+            }
+        }
+    }
+
+    /**
+     * Recusa a recarga de um arquivo alterado no lugar em vez de substituído por
+     * renomeação: o mapeamento atual aponta para o mesmo arquivo
+     */
+    void conferirSubstituicao(String nomeArquivo) throws IOException {
+        Object chaveAtual = Files.readAttributes(Paths.get(nomeArquivo), BasicFileAttributes.class).fileKey();
+        if (chaveArquivo != null && chaveArquivo.equals(chaveAtual)) {
+            throw new IOException("Arquivo alterado no lugar; no armazenamento mapeado, substitua-o " +
+                    "gravando em um arquivo temporário e renomeando");
+        }
+    }
+
+    /**
+     * Verifica se o índice e foi gerado para o mesmo conteúdo do arquivo
+     */
+    private static boolean indiceValido(Path arquivoIndice, long tamanho, long modificacao) {
+        if (!Files.exists(arquivoIndice)) {
+            return false;
+        }
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(arquivoIndice)))) {
+            return entrada.readInt() == MAGICO
+                    && entrada.readInt() == VERSAO_INDICE
+                    && entrada.readLong() == tamanho
+                    && entrada.readLong() == modificacao;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Varre o arquivo uma vez registrando o início de cada mensagem
+     * A primeira linha (total declarado) não faz parte do índice.
+     */
+    private static void construirIndice(ByteBuffer dados, Path arquivoIndice,
+                                        long tamanho, long modificacao) throws IOException {
+        int limite = dados.limit();
+        int posicao = 0;
+
+        // Lê o total declarado na primeira linha
+        int totalDeclarado = 0;
+        while (posicao < limite && dados.get(posicao) != '\n') {
+            byte b = dados.get(posicao++);
+            if (b >= '0' && b <= '9') {
+                totalDeclarado = totalDeclarado * 10 + (b - '0');
+            }
+        }
+        posicao++;
+
+        Path temporario = Paths.get(arquivoIndice + ".tmp");
+        int total = 0;
+        try (DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporario), 64 * 1024))) {
+            saida.writeInt(MAGICO);
+            saida.writeInt(VERSAO_INDICE);
+            saida.writeLong(tamanho);
+            saida.writeLong(modificacao);
+            saida.writeInt(0); // Total, preenchido ao final
+
+            while (posicao < limite) {
+                saida.writeLong(posicao);
+                total++;
+                while (posicao < limite && dados.get(posicao) != '\n') {
+                    posicao++;
+                }
+                posicao++;
+            }
+            // Sentinela: fim da última mensagem
+            saida.writeLong(limite);
+        }
+
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.allocate(4).putInt(0, total), TAMANHO_CABECALHO - 4);
+        }
+        Files.move(temporario, arquivoIndice, StandardCopyOption.REPLACE_EXISTING);
+
+        if (total != totalDeclarado) {
+            System.err.println("AVISO: Número de mensagens difere do declarado!");
+        }
+    }
+
+    @Override
+    public int total() {
+        return total;
+    }
+
+    @Override
+    public String mensagem(int indice) {
+        int inicio = (int) inicios.get(indice);
+        int fim = (int) inicios.get(indice + 1);
+
+        // Remove a quebra de linha ("\n" ou "\r\n")
+        if (fim > inicio && dados.get(fim - 1) == '\n') {
+            fim--;
+        }
+        if (fim > inicio && dados.get(fim - 1) == '\r') {
+            fim--;
+        }
+
+        byte[] bytes = new byte[fim - inicio];
+        dados.get(inicio, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,51 @@
+package com.ifpb;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Banco de Mensagens em memória
+ * Lê o arquivo inteiro para uma lista de Strings no heap. Indicado para bancos
+ * pequenos, pois permite pré-codificar todas as respostas (CacheRespostas).
+ */
+final class BancoMemoria implements BancoMensagens {
+    private final List<String> mensagens;
+
+    private BancoMemoria(List<String> mensagens) {
+        this.mensagens = mensagens;
+    }
+
+    /**
+     * Carrega as mensagens de um arquivo texto
+     * Formato: primeira linha com o total declarado, depois uma mensagem por linha
+     */
+    static BancoMemoria carregar(String nomeArquivo) throws IOException {
+        List<String> mensagens = new ArrayList<>();
+
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new FileInputStream(nomeArquivo), StandardCharsets.UTF_8))) {
+            String linha = br.readLine();
+            int totalDeclarado = Integer.parseInt(linha.trim());
+
+            while ((linha = br.readLine()) != null) {
+                mensagens.add(linha);
+            }
+
+            if (mensagens.size() != totalDeclarado) {
+                System.err.println("AVISO: Número de mensagens difere do declarado!");
+            }
+        }
+        return new BancoMemoria(Collections.unmodifiableList(mensagens));
+    }
+
+    @Override
+    public int total() {
+        return mensagens.size();
+    }
+
+    @Override
+    public String mensagem(int indice) {
+        return mensagens.get(indice);
+    }
+}
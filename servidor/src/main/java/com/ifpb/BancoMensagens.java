@@ -0,0 +1,19 @@
+package com.ifpb;
+
+/**
+ * Banco de Mensagens
+ * Abstração do armazenamento das mensagens servidas pelo ServidorMensagens.
+ * Implementações devem permitir leituras concorrentes sem sincronização.
+ */
+interface BancoMensagens {
+
+    /**
+     * Total de mensagens disponíveis
+     */
+    int total();
+
+    /**
+     * Retorna a mensagem de índice informado (0 a total() - 1)
+     */
+    String mensagem(int indice);
+}
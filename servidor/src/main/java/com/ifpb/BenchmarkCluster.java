@@ -0,0 +1,135 @@
+package com.ifpb;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark de Vários Nós
+ * Sobe de 1 até N nós do servidor como processos filhos (modo nio, portas a
+ * partir de porta + 1, mesmo arquivo e armazenamento) e mede as mensagens/s
+ * obtidas pelo ClienteDistribuido com cada quantidade de nós, pedindo lotes de
+ * números aleatórios a partir de várias threads. Com mais de um nó, a última
+ * rodada derruba o dono da mensagem 1 no meio da medição, e as requisições
+ * dele são repetidas nos demais.
+ * A vazão só cresce com os nós se houver núcleos livres para eles: em uma
+ * máquina com poucos núcleos, os nós e o gerador disputam a mesma CPU.
+ * Uso: java com.ifpb.BenchmarkCluster [maximoNos] [segundos] [threads] [tamanhoLote]
+ */
+public class BenchmarkCluster {
+    private static final String HOST = Configuracao.texto("host");
+    private static final int PORTA = Configuracao.inteiro("porta");
+    private static final long TEMPO_SUBIDA_MS = 30_000;
+
+    public static void main(String[] args) throws Exception {
+        int maximoNos = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int tamanhoLote = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+        List<Process> processos = new ArrayList<>();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> processos.forEach(Process::destroyForcibly)));
+
+        System.out.println("=== BENCHMARK DE VÁRIOS NÓS (" + segundos + " s por rodada, " + threads +
+                " threads, lotes de " + tamanhoLote + ") ===");
+        System.out.printf("%-5s %15s %12s %12s%n", "Nós", "Mensagens/s", "Repetições", "Falhas");
+
+        for (int nos = 1; nos <= maximoNos; nos++) {
+            processos.add(iniciarNo(PORTA + nos));
+            List<String> enderecos = new ArrayList<>();
+            for (int i = 1; i <= nos; i++) {
+                enderecos.add(HOST + ":" + (PORTA + i));
+            }
+            // Na última rodada cai o dono da mensagem 1, que sempre recebe requisições
+            boolean derrubar = nos == maximoNos && nos > 1;
+            boolean[] todos = new boolean[nos];
+            Arrays.fill(todos, true);
+            Process vitima = derrubar ? processos.get(new AnelConsistente(enderecos).dono(1, todos)) : null;
+            medir(enderecos, segundos, threads, tamanhoLote, vitima);
+        }
+        processos.forEach(Process::destroyForcibly);
+    }
+
+    /**
+     * Mede uma rodada; se houver um nó a derrubar, ele é encerrado na metade do tempo
+     */
+    private static void medir(List<String> enderecos, int segundos, int threads, int tamanhoLote,
+                              Process derrubar) throws Exception {
+        LongAdder mensagens = new LongAdder();
+        LongAdder falhas = new LongAdder();
+
+        try (ClienteDistribuido cliente = new ClienteDistribuido(enderecos, 2, 5000, Protocolo.PROTOCOLO_V2, 500)) {
+            cliente.conectar();
+            int total = cliente.estados()[0].total;
+            long inicio = System.nanoTime();
+            long fim = inicio + segundos * 1_000_000_000L;
+
+            List<Thread> geradores = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread gerador = new Thread(() -> {
+                    int[] lote = new int[tamanhoLote];
+                    while (System.nanoTime() < fim) {
+                        for (int i = 0; i < lote.length; i++) {
+                            lote[i] = ThreadLocalRandom.current().nextInt(1, total + 1);
+                        }
+                        try {
+                            mensagens.add(cliente.buscarLote(lote).get().length);
+                        } catch (Exception e) {
+                            falhas.increment();
+                        }
+                    }
+                });
+                gerador.start();
+                geradores.add(gerador);
+            }
+            if (derrubar != null) {
+                Thread.sleep(segundos * 500L);
+                derrubar.destroyForcibly();
+            }
+            for (Thread gerador : geradores) {
+                gerador.join();
+            }
+
+            double duracao = (System.nanoTime() - inicio) / 1e9;
+            String nos = enderecos.size() + (derrubar != null ? "-1" : "");
+            System.out.printf("%-5s %,15.0f %,12d %,12d%n", nos, mensagens.sum() / duracao,
+                    cliente.repeticoes(), falhas.sum());
+        }
+    }
+
+    /**
+     * Inicia um nó com a configuração deste processo e espera a porta aceitar conexões
+     */
+    private static Process iniciarNo(int porta) throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process processo = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "com.ifpb.ServidorMensagens", "nio",
+                "--porta=" + porta,
+                "--arquivo=" + Configuracao.texto("arquivo"),
+                "--armazenamento=" + Configuracao.texto("armazenamento"),
+                "--metricas.porta=0",
+                "--log.nivel=erro")
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        long limite = System.currentTimeMillis() + TEMPO_SUBIDA_MS;
+        while (true) {
+            try {
+                new Socket(HOST, porta).close(); // Basta a conexão ser aceita
+                return processo;
+            } catch (IOException e) {
+                if (!processo.isAlive() || System.currentTimeMillis() > limite) {
+                    processo.destroyForcibly();
+                    throw new IOException("O nó da porta " + porta + " não subiu", e);
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.ifpb;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Benchmark do Protocolo de Respostas
+ * Mede mensagens/s e bytes/s recebidos em uma conexão persistente usando o
+ * quadro v1 (writeUTF de 150 caracteres) ou o v2 (status + varint + UTF-8).
+ * As mensagens são pedidas em lotes, percorrendo o banco de 1 até M.
+ * Uso: java com.ifpb.BenchmarkProtocolo [versao] [segundos] [tamanhoLote] [totalMensagens]
+ */
+public class BenchmarkProtocolo {
+    private static final String HOST = Configuracao.texto("host");
+    private static final int PORTA = Configuracao.inteiro("porta");
+
+    public static void main(String[] args) throws IOException {
+        int versao = args.length > 0 ? Integer.parseInt(args[0]) : Protocolo.PROTOCOLO_V2;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int tamanhoLote = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int totalMensagens = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        try (Socket socket = new Socket(HOST, PORTA)) {
+            ContadorEntrada contador = new ContadorEntrada(socket.getInputStream());
+            DataInputStream entrada = new DataInputStream(new BufferedInputStream(contador, 64 * 1024));
+            DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            if (versao != Protocolo.PROTOCOLO_V1) {
+                saida.writeInt(Protocolo.MARCADOR_COMANDO);
+                saida.writeByte(Protocolo.COMANDO_NEGOCIAR);
+                saida.writeByte(Protocolo.VERSAO_NEGOCIAR);
+                saida.writeByte(versao);
+                saida.flush();
+                versao = entrada.readByte();
+            }
+
+            System.out.println("=== BENCHMARK DO PROTOCOLO v" + versao + " (" + segundos +
+                    " s, lotes de " + tamanhoLote + ") ===");
+
+            long mensagens = 0;
+            long bytesInicio = contador.bytes;
+            long inicio = System.nanoTime();
+            long fim = inicio + segundos * 1_000_000_000L;
+            int proximo = 0;
+
+            while (System.nanoTime() < fim) {
+                saida.writeInt(Protocolo.MARCADOR_COMANDO);
+                saida.writeByte(Protocolo.COMANDO_LOTE);
+                saida.writeByte(Protocolo.VERSAO_LOTE);
+                saida.writeInt(tamanhoLote);
+                for (int i = 0; i < tamanhoLote; i++) {
+                    saida.writeInt(proximo + 1);
+                    proximo = (proximo + 1) % totalMensagens;
+                }
+                saida.writeBoolean(true);
+                saida.flush();
+
+                int quantidade = entrada.readInt();
+                for (int i = 0; i < quantidade; i++) {
+                    lerResposta(entrada, versao);
+                }
+                mensagens += quantidade;
+            }
+
+            double duracao = (System.nanoTime() - inicio) / 1e9;
+            long bytes = contador.bytes - bytesInicio;
+            System.out.printf("Mensagens/s: %,.0f%n", mensagens / duracao);
+            System.out.printf("Bytes/s:     %,.0f%n", bytes / duracao);
+            System.out.printf("Bytes/msg:   %.1f%n", (double) bytes / mensagens);
+        }
+    }
+
+    /**
+     * Decodifica a resposta como um cliente faria, incluindo o custo de parsing
+     */
+    private static String lerResposta(DataInputStream entrada, int versao) throws IOException {
+        if (versao == Protocolo.PROTOCOLO_V2) {
+            byte status = entrada.readByte();
+            byte[] texto = new byte[Protocolo.lerVarint(entrada)];
+            entrada.readFully(texto);
+            return status == Protocolo.STATUS_OK ? new String(texto, StandardCharsets.UTF_8) : null;
+        }
+        String[] partes = entrada.readUTF().trim().split("\\|", 2);
+        return partes[0].equals("OK") ? partes[1] : null;
+    }
+
+    /**
+     * Conta os bytes recebidos do socket
+     */
+    private static class ContadorEntrada extends FilterInputStream {
+        private long bytes;
+
+        ContadorEntrada(InputStream entrada) {
+            super(entrada);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                bytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] destino, int inicio, int tamanho) throws IOException {
+            int lidos = super.read(destino, inicio, tamanho);
+            if (lidos > 0) {
+                bytes += lidos;
+            }
+            return lidos;
+        }
+    }
+}
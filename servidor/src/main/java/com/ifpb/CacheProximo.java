@@ -0,0 +1,203 @@
+package com.ifpb;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache próximo (no cliente) das respostas, indexado pelo número da mensagem
+ * Limitado em número de entradas e com tempo de vida (TTL) por entrada, para
+ * que mudanças no banco do servidor apareçam depois de no máximo um TTL.
+ *
+ * O despejo é LRU com admissão TinyLFU: um esboço count-min de contadores de
+ * 4 bits estima a frequência recente de cada número, e quando o cache está
+ * cheio um número novo só entra se for mais frequente que a vítima do LRU.
+ * Assim uma varredura de números raros não expulsa as mensagens populares.
+ * Os contadores são reduzidos à metade periodicamente para esquecer o passado.
+ *
+ * A mensagem aleatória (número 0) nunca é guardada.
+ */
+public class CacheProximo {
+    private static final int PROFUNDIDADE_ESBOCO = 4;
+    private static final int CONTAGEM_MAXIMA = 15;
+
+    private final int capacidade;
+    private final long ttlNs;
+    private final LinkedHashMap<Integer, Entrada> entradas;
+
+    // Esboço count-min: PROFUNDIDADE_ESBOCO linhas de contadores (tamanho potência de 2)
+    private final byte[][] esboco;
+    private final int mascaraEsboco;
+    private final int limiteAmostras;
+    private int amostras = 0;
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder faltas = new LongAdder();
+    private final LongAdder expiradas = new LongAdder();
+    private final LongAdder despejos = new LongAdder();
+    private final LongAdder rejeicoes = new LongAdder();
+
+    public CacheProximo(int capacidade, long ttlMs) {
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("Capacidade do cache deve ser positiva: " + capacidade);
+        }
+        this.capacidade = capacidade;
+        this.ttlNs = ttlMs * 1_000_000L;
+        this.entradas = new LinkedHashMap<>(capacidade * 2, 0.75f, true); // Ordem de acesso (LRU)
+
+        int largura = Integer.highestOneBit(Math.max(16, capacidade * 4 - 1)) << 1;
+        this.esboco = new byte[PROFUNDIDADE_ESBOCO][largura];
+        this.mascaraEsboco = largura - 1;
+        this.limiteAmostras = capacidade * 10;
+    }
+
+    /**
+     * Resposta guardada para o número, ou null se não houver ou tiver expirado
+     */
+    public String obter(int numero) {
+        if (numero == 0) {
+            return null;
+        }
+        synchronized (this) {
+            registrarFrequencia(numero);
+            Entrada entrada = entradas.get(numero);
+            if (entrada != null && System.nanoTime() - entrada.criadaEm > ttlNs) {
+                entradas.remove(numero);
+                expiradas.increment();
+                entrada = null;
+            }
+            if (entrada == null) {
+                faltas.increment();
+                return null;
+            }
+            acertos.increment();
+            return entrada.resposta;
+        }
+    }
+
+    /**
+     * Guarda a resposta recebida do servidor, respeitando a política de admissão
+     */
+    public void guardar(int numero, String resposta) {
+        if (numero == 0) {
+            return;
+        }
+        synchronized (this) {
+            Entrada nova = new Entrada(resposta, System.nanoTime());
+            if (entradas.containsKey(numero) || entradas.size() < capacidade) {
+                entradas.put(numero, nova);
+                return;
+            }
+
+            Iterator<Map.Entry<Integer, Entrada>> lru = entradas.entrySet().iterator();
+            Map.Entry<Integer, Entrada> vitima = lru.next();
+            if (frequencia(numero) <= frequencia(vitima.getKey())) {
+                rejeicoes.increment();
+                return;
+            }
+            lru.remove();
+            despejos.increment();
+            entradas.put(numero, nova);
+        }
+    }
+
+    /**
+     * Descarta todas as entradas (as estatísticas são mantidas)
+     */
+    public synchronized void limpar() {
+        entradas.clear();
+    }
+
+    public synchronized int tamanho() {
+        return entradas.size();
+    }
+
+    public long acertos() {
+        return acertos.sum();
+    }
+
+    public long faltas() {
+        return faltas.sum();
+    }
+
+    public long expiradas() {
+        return expiradas.sum();
+    }
+
+    public long despejos() {
+        return despejos.sum();
+    }
+
+    public long rejeicoes() {
+        return rejeicoes.sum();
+    }
+
+    /**
+     * Fração das consultas atendidas pelo cache
+     */
+    public double taxaAcertos() {
+        long a = acertos.sum();
+        long total = a + faltas.sum();
+        return total == 0 ? 0 : (double) a / total;
+    }
+
+    /**
+     * Resumo das estatísticas, para dimensionar capacidade e TTL
+     */
+    public String resumo() {
+        return String.format("entradas: %,d/%,d | acertos: %,d | faltas: %,d (%.1f%% de acerto) | " +
+                        "expiradas: %,d | despejos: %,d | rejeitadas: %,d",
+                tamanho(), capacidade, acertos(), faltas(), taxaAcertos() * 100,
+                expiradas(), despejos(), rejeicoes());
+    }
+
+    private void registrarFrequencia(int numero) {
+        for (int linha = 0; linha < PROFUNDIDADE_ESBOCO; linha++) {
+            int indice = indiceEsboco(numero, linha);
+            if (esboco[linha][indice] < CONTAGEM_MAXIMA) {
+                esboco[linha][indice]++;
+            }
+        }
+        if (++amostras >= limiteAmostras) {
+            envelhecer();
+        }
+    }
+
+    private int frequencia(int numero) {
+        int minimo = CONTAGEM_MAXIMA;
+        for (int linha = 0; linha < PROFUNDIDADE_ESBOCO; linha++) {
+            minimo = Math.min(minimo, esboco[linha][indiceEsboco(numero, linha)]);
+        }
+        return minimo;
+    }
+
+    /**
+     * Reduz todos os contadores à metade, para que a frequência reflita o uso recente
+     */
+    private void envelhecer() {
+        for (byte[] linha : esboco) {
+            for (int i = 0; i < linha.length; i++) {
+                linha[i] >>= 1;
+            }
+        }
+        amostras /= 2;
+    }
+
+    private int indiceEsboco(int numero, int linha) {
+        // Uma semente diferente por linha, misturada como no SplitMix64
+        long h = (numero + (linha + 1) * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 31;
+        return (int) h & mascaraEsboco;
+    }
+
+    private static final class Entrada {
+        final String resposta;
+        final long criadaEm;
+
+        Entrada(String resposta, long criadaEm) {
+            this.resposta = resposta;
+            this.criadaEm = criadaEm;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.ifpb;
+
+/**
+ * Cache de respostas pré-codificadas
+ * Cada mensagem do banco é convertida uma única vez, na carga, para os quadros
+ * exatos que o protocolo envia (v1: [tamanho:unsigned short][150 caracteres UTF-8];
+ * v2: [status:byte][tamanho:varint][texto UTF-8]), de modo que o atendimento
+ * apenas escreve um byte[] já pronto no socket.
+ * Os arrays são compartilhados entre as threads e nunca devem ser alterados.
+ */
+final class CacheRespostas {
+    private final byte[][] quadros;
+    private final byte[][] quadrosV2;
+    private final byte[] quadroErro;
+    private final byte[] quadroErroV2;
+
+    CacheRespostas(BancoMensagens banco) {
+        this.quadros = new byte[banco.total()][];
+        this.quadrosV2 = new byte[banco.total()][];
+        for (int i = 0; i < quadros.length; i++) {
+            String resposta = "OK|" + banco.mensagem(i);
+            quadros[i] = ServidorMensagens.codificarResposta(resposta);
+            quadrosV2[i] = Protocolo.codificarRespostaV2(resposta);
+        }
+        String erro = "ERRO|Número inválido! Use valores de 0 a " + quadros.length + " (0 = aleatória)";
+        this.quadroErro = ServidorMensagens.codificarResposta(erro);
+        this.quadroErroV2 = Protocolo.codificarRespostaV2(erro);
+    }
+
+    /**
+     * Retorna o quadro de resposta para o número pedido na versão de protocolo
+     * da conexão, com as mesmas regras de ServidorMensagens.processarRequisicao
+     */
+    byte[] quadro(int numero, int versao, SelecaoAleatoria selecao) {
+        byte[][] origem = versao == Protocolo.PROTOCOLO_V2 ? quadrosV2 : quadros;
+
+        // Caso 1: Mensagem aleatória (número 0)
+        if (numero == 0) {
+            return origem[selecao.proximoIndice(origem.length)];
+        }
+
+        // Caso 2: Número válido (1 a M)
+        if (numero >= 1 && numero <= origem.length) {
+            return origem[numero - 1];
+        }
+
+        // Caso 3: Número inválido
+        return versao == Protocolo.PROTOCOLO_V2 ? quadroErroV2 : quadroErro;
+    }
+}
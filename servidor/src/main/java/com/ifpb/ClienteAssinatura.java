@@ -0,0 +1,114 @@
+package com.ifpb;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Cliente de uma assinatura (COMANDO_ASSINAR): recebe o fluxo de mensagens
+ * enviado pelo servidor em uma conexão própria, sem uma requisição por mensagem
+ * A janela é o número de mensagens que o servidor pode enviar sem esperar o
+ * cliente: ela é concedida em créditos no início, e cada metade consumida por
+ * proxima() é devolvida em um único envio. Um consumidor lento para de pedir
+ * mensagens, e o servidor para de enviá-las.
+ * Uma instância é lida por uma thread de cada vez.
+ */
+public class ClienteAssinatura implements AutoCloseable {
+    public static final byte ALEATORIAS = Protocolo.ASSINATURA_ALEATORIA;
+    public static final byte SEQUENCIAL = Protocolo.ASSINATURA_SEQUENCIAL;
+
+    private final Socket socket;
+    private final DataInputStream entrada;
+    private final DataOutputStream saida;
+    private final int versaoProtocolo;
+    private final int reposicao; // Mensagens consumidas a cada concessão de créditos
+    private int consumidas = 0;
+    private int numero = 0;
+    private String fim;
+
+    /**
+     * @param modo   ALEATORIAS ou SEQUENCIAL (a partir de inicio, 1 a M)
+     * @param taxa   mensagens por segundo (0 = tão rápido quanto a janela permitir)
+     * @param janela mensagens que podem estar a caminho sem terem sido lidas
+     */
+    public ClienteAssinatura(String host, int porta, byte modo, int inicio, int taxa, int janela)
+            throws IOException {
+        if (janela < 1) {
+            throw new IllegalArgumentException("A janela deve ter ao menos 1 mensagem");
+        }
+        this.reposicao = Math.max(1, janela / 2);
+        socket = new Socket();
+        OpcoesSocket.configurar(socket);
+        socket.connect(new InetSocketAddress(host, porta));
+        entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        // Negociação e assinatura seguem juntas; a resposta da negociação chega antes do fluxo
+        saida.writeInt(Protocolo.MARCADOR_COMANDO);
+        saida.writeByte(Protocolo.COMANDO_NEGOCIAR);
+        saida.writeByte(Protocolo.VERSAO_NEGOCIAR);
+        saida.writeByte(Protocolo.PROTOCOLO_MAIS_RECENTE);
+        saida.writeInt(Protocolo.MARCADOR_COMANDO);
+        saida.writeByte(Protocolo.COMANDO_ASSINAR);
+        saida.writeByte(Protocolo.VERSAO_ASSINAR);
+        saida.writeByte(modo);
+        saida.writeInt(inicio);
+        saida.writeInt(taxa);
+        saida.writeInt(janela);
+        saida.flush();
+        versaoProtocolo = entrada.readByte();
+    }
+
+    /**
+     * Próxima mensagem do fluxo ("OK|mensagem" ou "ERRO|motivo"), ou null quando
+     * o servidor encerra a assinatura (ver fim())
+     */
+    public String proxima() throws IOException {
+        if (fim != null) {
+            return null;
+        }
+        int recebido = entrada.readInt();
+        String resposta = lerQuadro();
+        if (recebido == Protocolo.FIM_ASSINATURA) {
+            fim = resposta;
+            return null;
+        }
+        numero = recebido;
+        if (++consumidas == reposicao) {
+            saida.writeInt(consumidas);
+            saida.flush();
+            consumidas = 0;
+        }
+        return resposta;
+    }
+
+    /**
+     * Número da última mensagem devolvida por proxima()
+     */
+    public int numero() {
+        return numero;
+    }
+
+    /**
+     * Quadro de encerramento enviado pelo servidor ("OK|Fim do banco" ou
+     * "ERRO|motivo"), ou null enquanto o fluxo continua
+     */
+    public String fim() {
+        return fim;
+    }
+
+    /**
+     * Cancela a assinatura fechando a conexão
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private String lerQuadro() throws IOException {
+        if (versaoProtocolo == Protocolo.PROTOCOLO_V2) {
+            return Protocolo.lerRespostaV2(entrada);
+        }
+        return entrada.readUTF().trim();
+    }
+}
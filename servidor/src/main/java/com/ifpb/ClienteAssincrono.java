@@ -0,0 +1,477 @@
+package com.ifpb;
+
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cliente assíncrono do Serviço de Mensagens, para uso embutido em aplicações
+ * Mantém um pool fixo de conexões persistentes, compartilhado por quantas
+ * threads quiserem, e devolve as respostas como CompletableFuture. Cada conexão
+ * funciona em pipeline: as requisições são escritas sem aguardar as anteriores
+ * e uma thread leitora completa os pedidos na ordem em que as respostas chegam.
+ *
+ * Uma conexão que falha (erro de E/S ou resposta que excede o tempo limite) é
+ * descartada com todos os seus pedidos pendentes e reaberta no próximo uso.
+ * A abertura acontece fora de qualquer trava: quem usar a mesma posição
+ * enquanto ela se conecta espera só por ela, e se a conexão não se estabelecer
+ * esses pedidos falham. As demais posições seguem atendendo normalmente.
+ * Pedidos perdidos por queda da conexão são reenviados uma vez, já que as
+ * consultas não alteram o estado do servidor.
+ *
+ * Opcionalmente, buscar consulta antes um CacheProximo; faltas simultâneas pelo
+ * mesmo número são agrupadas em uma única requisição ao servidor.
+ */
+public class ClienteAssincrono implements AutoCloseable {
+    private final String host;
+    private final int porta;
+    private final long tempoLimiteMs;
+    private final int versaoDesejada;
+    // Conexão de cada posição do pool, ainda em abertura ou já estabelecida
+    private final AtomicReferenceArray<CompletableFuture<Conexao>> conexoes;
+    private final CacheProximo cache;
+    private final ConcurrentHashMap<Integer, CompletableFuture<String>> emAndamento = new ConcurrentHashMap<>();
+    private final AtomicInteger proximaConexao = new AtomicInteger();
+    private volatile boolean fechado = false;
+    private volatile int versaoProtocolo = Protocolo.PROTOCOLO_V1;
+
+    /**
+     * @param tamanhoPool    conexões persistentes mantidas com o servidor
+     * @param tempoLimiteMs  tempo máximo de espera por uma resposta
+     * @param versaoDesejada versão do quadro de resposta pedida em cada conexão
+     *                       (PROTOCOLO_V1 dispensa a negociação, para servidores antigos)
+     */
+    public ClienteAssincrono(String host, int porta, int tamanhoPool, long tempoLimiteMs, int versaoDesejada) {
+        this(host, porta, tamanhoPool, tempoLimiteMs, versaoDesejada, null);
+    }
+
+    /**
+     * Como o construtor anterior, atendendo buscar pelo cache próximo quando possível
+     */
+    public ClienteAssincrono(String host, int porta, int tamanhoPool, long tempoLimiteMs, int versaoDesejada,
+                             CacheProximo cache) {
+        this.host = host;
+        this.porta = porta;
+        this.tempoLimiteMs = tempoLimiteMs;
+        this.versaoDesejada = versaoDesejada;
+        this.conexoes = new AtomicReferenceArray<>(Math.max(1, tamanhoPool));
+        this.cache = cache;
+    }
+
+    /**
+     * Abre todas as conexões do pool de imediato, em vez de no primeiro uso
+     */
+    public void conectar() throws IOException {
+        for (int i = 0; i < conexoes.length(); i++) {
+            try {
+                obterConexao(i).get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Conexão interrompida");
+            }
+        }
+    }
+
+    /**
+     * Solicita uma mensagem; o resultado é "OK|mensagem" ou "ERRO|motivo"
+     */
+    public CompletableFuture<String> buscar(int numeroMensagem) {
+        if (cache == null || numeroMensagem == 0) {
+            return solicitar(numeroMensagem);
+        }
+        String guardada = cache.obter(numeroMensagem);
+        if (guardada != null) {
+            return CompletableFuture.completedFuture(guardada);
+        }
+
+        CompletableFuture<String> resultado = new CompletableFuture<>();
+        CompletableFuture<String> existente = emAndamento.putIfAbsent(numeroMensagem, resultado);
+        if (existente != null) {
+            return existente.copy(); // Cópia, para um chamador não cancelar o resultado dos outros
+        }
+        solicitar(numeroMensagem).whenComplete((resposta, erro) -> {
+            // Erros (número inválido, limite de taxa) podem mudar a qualquer momento: não ficam no cache
+            if (erro == null && resposta.startsWith("OK|")) {
+                cache.guardar(numeroMensagem, resposta);
+            }
+            emAndamento.remove(numeroMensagem, resultado);
+            if (erro == null) {
+                resultado.complete(resposta);
+            } else {
+                resultado.completeExceptionally(erro);
+            }
+        });
+        return resultado;
+    }
+
+    /**
+     * Envia a requisição de uma mensagem ao servidor, sem consultar o cache
+     */
+    private CompletableFuture<String> solicitar(int numeroMensagem) {
+        Pedido<String> pedido = new Pedido<>() {
+            @Override
+            void escrever(DataOutputStream saida) throws IOException {
+                saida.writeInt(numeroMensagem);
+                saida.writeBoolean(true);
+            }
+
+            @Override
+            String ler(DataInputStream entrada, int versao) throws IOException {
+                return lerResposta(entrada, versao);
+            }
+        };
+        submeter(pedido);
+        return pedido.resultado;
+    }
+
+    /**
+     * Solicita várias mensagens em um único comando de lote (sem passar pelo cache)
+     */
+    public CompletableFuture<String[]> buscarLote(int[] numeros) {
+        int[] copia = numeros.clone();
+        Pedido<String[]> pedido = new Pedido<>() {
+            @Override
+            void escrever(DataOutputStream saida) throws IOException {
+                saida.writeInt(Protocolo.MARCADOR_COMANDO);
+                saida.writeByte(Protocolo.COMANDO_LOTE);
+                saida.writeByte(Protocolo.VERSAO_LOTE);
+                saida.writeInt(copia.length);
+                for (int numero : copia) {
+                    saida.writeInt(numero);
+                }
+                saida.writeBoolean(true);
+            }
+
+            @Override
+            String[] ler(DataInputStream entrada, int versao) throws IOException {
+                String[] respostas = new String[entrada.readInt()];
+                for (int i = 0; i < respostas.length; i++) {
+                    respostas[i] = lerResposta(entrada, versao);
+                }
+                return respostas;
+            }
+        };
+        submeter(pedido);
+        return pedido.resultado;
+    }
+
+    /**
+     * Pesquisa as mensagens que contêm os termos da consulta, opcionalmente só
+     * de um autor (texto vazio para não filtrar), até k resultados (sem passar pelo cache)
+     */
+    public CompletableFuture<ResultadoPesquisa> pesquisar(String consulta, String autor, int k) {
+        if (!Protocolo.textoPesquisaValido(consulta) || !Protocolo.textoPesquisaValido(autor)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                    "Textos de pesquisa devem ter até " + Protocolo.MAXIMO_TEXTO_PESQUISA + " bytes"));
+        }
+        Pedido<ResultadoPesquisa> pedido = new Pedido<>() {
+            @Override
+            void escrever(DataOutputStream saida) throws IOException {
+                saida.writeInt(Protocolo.MARCADOR_COMANDO);
+                saida.writeByte(Protocolo.COMANDO_PESQUISAR);
+                saida.writeByte(Protocolo.VERSAO_PESQUISAR);
+                saida.writeInt(k);
+                Protocolo.escreverTexto(saida, consulta);
+                Protocolo.escreverTexto(saida, autor);
+                saida.writeBoolean(true);
+            }
+
+            @Override
+            ResultadoPesquisa ler(DataInputStream entrada, int versao) throws IOException {
+                return ResultadoPesquisa.ler(entrada, versao);
+            }
+        };
+        submeter(pedido);
+        return pedido.resultado;
+    }
+
+    /**
+     * Consulta o snapshot do banco em uso no servidor (versão, checksum e total)
+     */
+    public CompletableFuture<EstadoNo> estado() {
+        Pedido<EstadoNo> pedido = new Pedido<>() {
+            @Override
+            void escrever(DataOutputStream saida) throws IOException {
+                saida.writeInt(Protocolo.MARCADOR_COMANDO);
+                saida.writeByte(Protocolo.COMANDO_ESTADO);
+                saida.writeByte(Protocolo.VERSAO_ESTADO);
+                saida.writeBoolean(true);
+            }
+
+            @Override
+            EstadoNo ler(DataInputStream entrada, int versao) throws IOException {
+                return EstadoNo.ler(entrada);
+            }
+        };
+        submeter(pedido);
+        return pedido.resultado;
+    }
+
+    /**
+     * Versão do quadro de resposta aceita pelo servidor na última conexão aberta
+     */
+    public int versaoProtocolo() {
+        return versaoProtocolo;
+    }
+
+    /**
+     * Fecha todas as conexões; pedidos ainda pendentes falham
+     */
+    @Override
+    public void close() {
+        fechado = true;
+        // Conexões ainda em abertura são descartadas por quem as abre, ao ver o cliente fechado
+        for (int i = 0; i < conexoes.length(); i++) {
+            Conexao conexao = estabelecida(conexoes.get(i));
+            if (conexao != null) {
+                conexao.descartar(new IOException("Cliente fechado"));
+            }
+        }
+    }
+
+    private void submeter(Pedido<?> pedido) {
+        // Sem resposta no prazo, a conexão é considerada perdida (o pipeline atrás dela também ficaria parado)
+        pedido.resultado.orTimeout(tempoLimiteMs, TimeUnit.MILLISECONDS).whenComplete((resultado, erro) -> {
+            Conexao conexao = pedido.conexao;
+            if (erro instanceof TimeoutException && conexao != null) {
+                conexao.descartar(new IOException("Tempo limite de " + tempoLimiteMs + " ms excedido"));
+            }
+        });
+        enviar(pedido);
+    }
+
+    /**
+     * Escolhe uma conexão do pool em round-robin e escreve o pedido nela
+     */
+    private void enviar(Pedido<?> pedido) {
+        if (fechado) {
+            pedido.resultado.completeExceptionally(new IOException("Cliente fechado"));
+            return;
+        }
+        int indice = Math.floorMod(proximaConexao.getAndIncrement(), conexoes.length());
+        CompletableFuture<Conexao> conexao = obterConexao(indice);
+        Conexao pronta = estabelecida(conexao);
+        if (pronta != null) {
+            pronta.enviar(pedido);
+            return;
+        }
+        // Ainda em abertura: o pedido segue quando ela terminar, ou falha com ela
+        conexao.whenComplete((aberta, erro) -> {
+            if (erro == null) {
+                aberta.enviar(pedido);
+            } else {
+                pedido.resultado.completeExceptionally(erro instanceof CompletionException ? erro.getCause() : erro);
+            }
+        });
+    }
+
+    /**
+     * Reenvia uma vez um pedido que ficou sem resposta por queda da conexão
+     */
+    private void reenviarOuFalhar(Pedido<?> pedido, IOException causa) {
+        if (pedido.resultado.isDone()) {
+            return;
+        }
+        if (!pedido.reenviado && !fechado) {
+            pedido.reenviado = true;
+            enviar(pedido);
+        } else {
+            pedido.resultado.completeExceptionally(causa);
+        }
+    }
+
+    /**
+     * Retorna a conexão da posição, reabrindo-a se ainda não existe ou falhou
+     * Quem encontra a posição vazia reserva-a e abre a conexão na própria thread,
+     * fora da trava; quem chega durante a abertura recebe o mesmo futuro.
+     */
+    private CompletableFuture<Conexao> obterConexao(int indice) {
+        CompletableFuture<Conexao> atual = conexoes.get(indice);
+        if (atual != null && (!atual.isDone() || estabelecida(atual) != null)) {
+            return atual;
+        }
+        CompletableFuture<Conexao> nova = new CompletableFuture<>();
+        synchronized (conexoes) {
+            atual = conexoes.get(indice);
+            if (atual != null && (!atual.isDone() || estabelecida(atual) != null)) {
+                return atual;
+            }
+            conexoes.set(indice, nova);
+        }
+
+        try {
+            Conexao conexao = new Conexao(indice);
+            nova.complete(conexao);
+            if (fechado) {
+                conexao.descartar(new IOException("Cliente fechado"));
+            }
+        } catch (IOException e) {
+            // A posição fica com a falha e é reaberta no próximo uso
+            nova.completeExceptionally(e);
+        }
+        return nova;
+    }
+
+    /**
+     * Conexão já estabelecida e ativa do futuro, ou null se ele ainda não terminou ou falhou
+     */
+    private static Conexao estabelecida(CompletableFuture<Conexao> futuro) {
+        if (futuro == null || !futuro.isDone() || futuro.isCompletedExceptionally()) {
+            return null;
+        }
+        Conexao conexao = futuro.join();
+        return conexao.ativa ? conexao : null;
+    }
+
+    private static String lerResposta(DataInputStream entrada, int versao) throws IOException {
+        if (versao == Protocolo.PROTOCOLO_V2) {
+            return Protocolo.lerRespostaV2(entrada);
+        }
+        return entrada.readUTF().trim(); // Remove espaços de preenchimento
+    }
+
+    /**
+     * Requisição aguardando resposta: sabe escrever a si mesma e ler a própria resposta
+     */
+    private abstract class Pedido<T> {
+        final CompletableFuture<T> resultado = new CompletableFuture<>();
+        volatile Conexao conexao; // Conexão em que o pedido foi escrito por último
+        volatile boolean reenviado = false;
+
+        abstract void escrever(DataOutputStream saida) throws IOException;
+
+        abstract T ler(DataInputStream entrada, int versao) throws IOException;
+
+        void responder(DataInputStream entrada, int versao) throws IOException {
+            resultado.complete(ler(entrada, versao));
+        }
+    }
+
+    /**
+     * Conexão persistente em pipeline, com uma thread leitora própria
+     */
+    private class Conexao {
+        private final Socket socket;
+        private final DataOutputStream saida;
+        private final DataInputStream entrada;
+        private final int versao;
+        private final BlockingQueue<Pedido<?>> pendentes = new LinkedBlockingQueue<>();
+        // Threads que pediram para escrever; só quem sai por último faz o flush
+        private final AtomicInteger escritoresAguardando = new AtomicInteger();
+        private volatile boolean ativa = true;
+
+        Conexao(int indice) throws IOException {
+            socket = new Socket();
+            try {
+                OpcoesSocket.configurar(socket);
+                // Com prazo, um nó fora do ar (ou que aceita e não responde à negociação)
+                // não prende o chamador até o timeout do sistema
+                int prazo = (int) Math.min(tempoLimiteMs, Integer.MAX_VALUE);
+                socket.connect(new InetSocketAddress(host, porta), prazo);
+                saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                socket.setSoTimeout(prazo);
+                versao = versaoDesejada == Protocolo.PROTOCOLO_V1 ? Protocolo.PROTOCOLO_V1 : negociar();
+                // Daqui em diante, o prazo de cada resposta é o orTimeout do pedido
+                socket.setSoTimeout(0);
+            } catch (IOException | RuntimeException e) {
+                socket.close();
+                throw e;
+            }
+            versaoProtocolo = versao;
+
+            Thread leitora = new Thread(this::lerRespostas, "cliente-mensagens-" + indice);
+            leitora.setDaemon(true);
+            leitora.start();
+        }
+
+        private int negociar() throws IOException {
+            saida.writeInt(Protocolo.MARCADOR_COMANDO);
+            saida.writeByte(Protocolo.COMANDO_NEGOCIAR);
+            saida.writeByte(Protocolo.VERSAO_NEGOCIAR);
+            saida.writeByte(versaoDesejada);
+            saida.flush();
+            int aceita = entrada.readByte();
+            // Um servidor lotado responde com um quadro de erro v1 e fecha a conexão
+            if (aceita != Protocolo.PROTOCOLO_V1 && aceita != Protocolo.PROTOCOLO_V2) {
+                throw new IOException("Servidor recusou a conexão");
+            }
+            return aceita;
+        }
+
+        void enviar(Pedido<?> pedido) {
+            escritoresAguardando.incrementAndGet();
+            synchronized (saida) {
+                boolean ultimo = escritoresAguardando.decrementAndGet() == 0;
+                try {
+                    if (!ativa) {
+                        throw new IOException("Conexão perdida");
+                    }
+                    // Entra na fila antes da escrita, para a resposta sempre encontrar o pedido
+                    pedido.conexao = this;
+                    pendentes.add(pedido);
+                    pedido.escrever(saida);
+                    if (ultimo) {
+                        saida.flush();
+                    }
+                    if (!ativa) {
+                        throw new IOException("Conexão perdida");
+                    }
+                } catch (IOException e) {
+                    descartar(e);
+                    // Se o descarte já não o levou, o pedido é reenviado aqui
+                    if (pendentes.remove(pedido)) {
+                        reenviarOuFalhar(pedido, e);
+                    }
+                }
+            }
+        }
+
+        private void lerRespostas() {
+            Pedido<?> pedido = null;
+            try {
+                while (true) {
+                    pedido = pendentes.take();
+                    pedido.responder(entrada, versao);
+                }
+            } catch (IOException e) {
+                descartar(e);
+                // O pedido em leitura já saiu da fila de pendentes
+                reenviarOuFalhar(pedido, e);
+            } catch (RuntimeException e) {
+                // Resposta malformada (ex.: tamanho negativo): a conexão perdeu o sincronismo
+                IOException causa = new IOException("Resposta inválida do servidor: " + e.getMessage(), e);
+                descartar(causa);
+                reenviarOuFalhar(pedido, causa);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Fecha a conexão e reenvia uma vez (por outra conexão) os pedidos sem resposta
+         */
+        void descartar(IOException causa) {
+            synchronized (this) {
+                if (!ativa) {
+                    return;
+                }
+                ativa = false;
+            }
+            try {
+                socket.close();
+            } catch (IOException ignorada) {
+                // A conexão já está sendo descartada
+            }
+
+            Pedido<?> pedido;
+            while ((pedido = pendentes.poll()) != null) {
+                reenviarOuFalhar(pedido, causa);
+            }
+        }
+    }
+}
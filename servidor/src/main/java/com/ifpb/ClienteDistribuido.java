@@ -0,0 +1,322 @@
+package com.ifpb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Cliente do Serviço de Mensagens com vários nós
+ * Cada nó é um ServidorMensagens independente, carregando o mesmo arquivo de
+ * banco, e é acessado por um ClienteAssincrono próprio. As mensagens são
+ * distribuídas entre os nós por um AnelConsistente: cada número vai sempre ao
+ * mesmo nó, que mantém quentes só as suas mensagens (no armazenamento mapeado,
+ * só as páginas delas ficam em memória). Aleatórias e pesquisas, que não têm
+ * dono, alternam entre os nós.
+ *
+ * Um nó que falha (erro de E/S ou tempo limite) sai do anel na hora, e a
+ * requisição é repetida no próximo nó. A cada intervalo de verificação o
+ * cliente consulta o estado de todos os nós: só ficam no anel os que respondem
+ * e servem o mesmo conteúdo (checksum) da maioria, com empate resolvido pela
+ * carga mais recente. Assim um nó que volta ou que ainda não recarregou o
+ * arquivo só recebe requisições quando estiver em dia com os demais.
+ */
+public class ClienteDistribuido implements AutoCloseable {
+    private final String[] nos; // "host:porta"
+    private final ClienteAssincrono[] clientes;
+    private final AnelConsistente anel;
+    private final ScheduledExecutorService verificador;
+    private final AtomicInteger proximoNo = new AtomicInteger();
+    private final LongAdder repeticoes = new LongAdder();
+    // Substituídos inteiros (cópia na escrita), para a leitura não precisar de bloqueio
+    private volatile boolean[] disponiveis;
+    private volatile EstadoNo[] estados;
+
+    /**
+     * @param nos                    endereços "host:porta" dos nós
+     * @param conexoesPorNo          conexões persistentes mantidas com cada nó
+     * @param tempoLimiteMs          tempo máximo de espera por uma resposta (e pela conexão)
+     * @param versaoDesejada         versão do quadro de resposta pedida em cada conexão
+     * @param intervaloVerificacaoMs intervalo entre as consultas de estado dos nós
+     */
+    public ClienteDistribuido(List<String> nos, int conexoesPorNo, long tempoLimiteMs, int versaoDesejada,
+                              long intervaloVerificacaoMs) {
+        if (nos.isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos um nó");
+        }
+        this.nos = nos.toArray(new String[0]);
+        this.clientes = new ClienteAssincrono[this.nos.length];
+        for (int i = 0; i < this.nos.length; i++) {
+            int separador = this.nos[i].lastIndexOf(':');
+            if (separador < 0) {
+                throw new IllegalArgumentException("Nó inválido: " + this.nos[i] + " (use host:porta)");
+            }
+            clientes[i] = new ClienteAssincrono(this.nos[i].substring(0, separador),
+                    Integer.parseInt(this.nos[i].substring(separador + 1)), conexoesPorNo, tempoLimiteMs,
+                    versaoDesejada);
+        }
+        this.anel = new AnelConsistente(nos);
+        this.disponiveis = new boolean[this.nos.length];
+        Arrays.fill(disponiveis, true); // Até a primeira verificação
+        this.estados = new EstadoNo[this.nos.length];
+
+        verificador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "cliente-distribuido-verificacao");
+            thread.setDaemon(true);
+            return thread;
+        });
+        verificador.scheduleWithFixedDelay(this::verificar, intervaloVerificacaoMs, intervaloVerificacaoMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Separa uma lista "host:porta,host:porta" nos endereços dos nós
+     */
+    public static List<String> lerNos(String lista) {
+        List<String> nos = new ArrayList<>();
+        for (String no : lista.split(",")) {
+            if (!no.isBlank()) {
+                nos.add(no.trim());
+            }
+        }
+        return nos;
+    }
+
+    /**
+     * Verifica os nós de imediato; falha se nenhum estiver disponível
+     */
+    public void conectar() throws IOException {
+        verificar();
+        if (nosDisponiveis() == 0) {
+            throw semNos();
+        }
+    }
+
+    /**
+     * Solicita uma mensagem ao nó dono do número; o resultado é "OK|mensagem" ou "ERRO|motivo"
+     */
+    public CompletableFuture<String> buscar(int numeroMensagem) {
+        if (numeroMensagem == 0) {
+            return comRepeticao(this::qualquerNo, cliente -> cliente.buscar(0), 0);
+        }
+        return comRepeticao(atuais -> anel.dono(numeroMensagem, atuais),
+                cliente -> cliente.buscar(numeroMensagem), 0);
+    }
+
+    /**
+     * Divide o lote entre os nós donos dos números, em um comando de lote por nó,
+     * e devolve as respostas na ordem pedida
+     */
+    public CompletableFuture<String[]> buscarLote(int[] numeros) {
+        return buscarLote(numeros.clone(), 0);
+    }
+
+    /**
+     * Pesquisa em um dos nós disponíveis (todos têm o banco inteiro)
+     */
+    public CompletableFuture<ResultadoPesquisa> pesquisar(String consulta, String autor, int k) {
+        return comRepeticao(this::qualquerNo, cliente -> cliente.pesquisar(consulta, autor, k), 0);
+    }
+
+    /**
+     * Consulta o estado de todos os nós e atualiza quais ficam no anel
+     */
+    public void verificar() {
+        List<CompletableFuture<EstadoNo>> consultas = new ArrayList<>();
+        for (ClienteAssincrono cliente : clientes) {
+            consultas.add(cliente.estado());
+        }
+        EstadoNo[] respostas = new EstadoNo[clientes.length];
+        for (int i = 0; i < clientes.length; i++) {
+            try {
+                respostas[i] = consultas.get(i).get();
+            } catch (ExecutionException e) {
+                respostas[i] = null; // Fora do ar ou sem resposta no prazo
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        EstadoNo referencia = escolherReferencia(respostas);
+        boolean[] novos = new boolean[clientes.length];
+        for (int i = 0; i < clientes.length; i++) {
+            novos[i] = referencia != null && respostas[i] != null && respostas[i].checksum == referencia.checksum;
+        }
+        synchronized (this) {
+            estados = respostas;
+            disponiveis = novos;
+        }
+    }
+
+    /**
+     * Estado de cada nó na última verificação (nulo se não respondeu)
+     */
+    public EstadoNo[] estados() {
+        return estados.clone();
+    }
+
+    public int nosDisponiveis() {
+        int total = 0;
+        for (boolean disponivel : disponiveis) {
+            if (disponivel) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Requisições repetidas em outro nó depois de uma falha
+     */
+    public long repeticoes() {
+        return repeticoes.sum();
+    }
+
+    /**
+     * Para a verificação periódica e fecha as conexões com todos os nós
+     */
+    @Override
+    public void close() {
+        verificador.shutdownNow();
+        for (ClienteAssincrono cliente : clientes) {
+            cliente.close();
+        }
+    }
+
+    private CompletableFuture<String[]> buscarLote(int[] numeros, int tentativa) {
+        boolean[] atuais = disponiveis;
+        int[] donos = new int[numeros.length];
+        int[] quantidades = new int[clientes.length];
+        for (int i = 0; i < numeros.length; i++) {
+            donos[i] = anel.dono(numeros[i], atuais);
+            if (donos[i] < 0) {
+                return CompletableFuture.failedFuture(semNos());
+            }
+            quantidades[donos[i]]++;
+        }
+
+        String[] respostas = new String[numeros.length];
+        List<CompletableFuture<Void>> partes = new ArrayList<>();
+        for (int no = 0; no < clientes.length; no++) {
+            if (quantidades[no] == 0) {
+                continue;
+            }
+            int[] posicoes = new int[quantidades[no]];
+            int[] parte = new int[quantidades[no]];
+            for (int i = 0, j = 0; i < numeros.length; i++) {
+                if (donos[i] == no) {
+                    posicoes[j] = i;
+                    parte[j++] = numeros[i];
+                }
+            }
+            // Se o nó falhar, só a parte dele é redistribuída entre os que restam
+            partes.add(recuperar(clientes[no].buscarLote(parte), no, tentativa,
+                    () -> buscarLote(parte, tentativa + 1))
+                    .thenAccept(recebidas -> {
+                        for (int j = 0; j < posicoes.length; j++) {
+                            respostas[posicoes[j]] = recebidas[j];
+                        }
+                    }));
+        }
+        return CompletableFuture.allOf(partes.toArray(new CompletableFuture<?>[0])).thenApply(v -> respostas);
+    }
+
+    /**
+     * Executa a operação no nó escolhido, repetindo no próximo escolhido se ele falhar
+     */
+    private <T> CompletableFuture<T> comRepeticao(ToIntFunction<boolean[]> escolha,
+                                                  Function<ClienteAssincrono, CompletableFuture<T>> operacao,
+                                                  int tentativa) {
+        int no = escolha.applyAsInt(disponiveis);
+        if (no < 0) {
+            return CompletableFuture.failedFuture(semNos());
+        }
+        return recuperar(operacao.apply(clientes[no]), no, tentativa,
+                () -> comRepeticao(escolha, operacao, tentativa + 1));
+    }
+
+    /**
+     * Se a resposta falhar por E/S ou tempo limite, tira o nó do anel e repete
+     * (no máximo uma vez por nó); outras falhas chegam ao chamador
+     */
+    private <T> CompletableFuture<T> recuperar(CompletableFuture<T> resposta, int no, int tentativa,
+                                               Supplier<CompletableFuture<T>> repetir) {
+        return resposta.handle((resultado, erro) -> {
+            if (erro == null) {
+                return CompletableFuture.completedFuture(resultado);
+            }
+            Throwable causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+            if (!(causa instanceof IOException || causa instanceof TimeoutException)) {
+                return CompletableFuture.<T>failedFuture(causa);
+            }
+            suspender(no);
+            if (tentativa + 1 >= clientes.length) {
+                return CompletableFuture.<T>failedFuture(causa);
+            }
+            repeticoes.increment();
+            return repetir.get();
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * Tira o nó do anel até a próxima verificação em que ele responder em dia
+     */
+    private synchronized void suspender(int no) {
+        if (disponiveis[no]) {
+            boolean[] novos = disponiveis.clone();
+            novos[no] = false;
+            disponiveis = novos;
+        }
+    }
+
+    /**
+     * Próximo nó disponível em round-robin, para requisições sem dono
+     */
+    private int qualquerNo(boolean[] atuais) {
+        int inicio = proximoNo.getAndIncrement();
+        for (int i = 0; i < atuais.length; i++) {
+            int no = Math.floorMod(inicio + i, atuais.length);
+            if (atuais[no]) {
+                return no;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Estado de referência: o checksum servido pela maioria dos nós que
+     * responderam; no empate, o do nó com a carga mais recente
+     */
+    private static EstadoNo escolherReferencia(EstadoNo[] respostas) {
+        EstadoNo referencia = null;
+        int votosReferencia = 0;
+        for (EstadoNo candidato : respostas) {
+            if (candidato == null) {
+                continue;
+            }
+            int votos = 0;
+            for (EstadoNo outro : respostas) {
+                if (outro != null && outro.checksum == candidato.checksum) {
+                    votos++;
+                }
+            }
+            if (votos > votosReferencia ||
+                    (votos == votosReferencia && candidato.carregadoEm > referencia.carregadoEm)) {
+                referencia = candidato;
+                votosReferencia = votos;
+            }
+        }
+        return referencia;
+    }
+
+    private IOException semNos() {
+        return new IOException("Nenhum nó disponível entre " + String.join(", ", nos));
+    }
+}
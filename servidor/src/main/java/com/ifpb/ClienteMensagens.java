@@ -0,0 +1,355 @@
+package com.ifpb;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Cliente de Mensagens - Laboratório de Sockets
+ * Implementa um cliente que se conecta ao servidor de mensagens
+ * e permite ao usuário solicitar mensagens do banco.
+ * O console interativo usa o ClienteAssincrono; os métodos conectar/solicitar
+ * continuam disponíveis para quem precisa de uma única conexão bloqueante.
+ */
+public class ClienteMensagens {
+    private static final long TEMPO_LIMITE_MS = 10_000;
+    private static final int RESULTADOS_PESQUISA = 10;
+
+    private final String host;
+    private final int porta;
+    private Socket socket;
+    private DataOutputStream saida;
+    private DataInputStream entrada;
+    private Scanner scanner;
+    private int versaoProtocolo = Protocolo.PROTOCOLO_V1;
+
+    /**
+     * Cliente para o host e a porta configurados (ver Configuracao)
+     */
+    public ClienteMensagens() {
+        this(Configuracao.texto("host"), Configuracao.inteiro("porta"));
+    }
+
+    public ClienteMensagens(String host, int porta) {
+        this.host = host;
+        this.porta = porta;
+    }
+
+    public static void main(String[] args) {
+        // Aceita as mesmas opções --chave=valor do servidor (--host, --porta, --protocolo...)
+        try {
+            Configuracao.carregar(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Erro de configuração: " + e.getMessage());
+            return;
+        }
+        ClienteMensagens cliente = new ClienteMensagens();
+        cliente.executar();
+    }
+
+    /**
+     * Método principal que gerencia a execução do cliente
+     */
+    public void executar() {
+        scanner = new Scanner(System.in);
+        System.out.println("=== CLIENTE DE MENSAGENS ===");
+        System.out.println("Conectando ao servidor " + host + ":" + porta + "...");
+
+        // Protocolo v2 só é pedido explicitamente (protocolo=2), pois servidores antigos não o conhecem
+        int versaoDesejada = Configuracao.inteiro("protocolo");
+
+        try (ClienteAssincrono cliente = new ClienteAssincrono(host, porta, 1, TEMPO_LIMITE_MS, versaoDesejada)) {
+            cliente.conectar();
+            System.out.println("Conexão estabelecida com sucesso!");
+            if (versaoDesejada != Protocolo.PROTOCOLO_V1) {
+                System.out.println("Protocolo negociado: v" + cliente.versaoProtocolo());
+            }
+            System.out.println();
+            exibirMenu();
+
+            boolean continuar = true;
+
+            while (continuar) {
+                System.out.print("\nDigite o número da mensagem (0 para aleatória, ?termos para pesquisar, -1 para sair): ");
+                String linha = lerEntrada();
+                if (linha.startsWith("?")) {
+                    // ?termos @autor: o autor é opcional
+                    String[] partes = linha.substring(1).split("@", 2);
+                    exibirPesquisa(cliente.pesquisar(partes[0].trim(), partes.length > 1 ? partes[1].trim() : "",
+                            RESULTADOS_PESQUISA).get());
+                    continue;
+                }
+                int[] numeros = converterNumeros(linha);
+
+                if (numeros.length == 1 && numeros[0] == -1) {
+                    continuar = false;
+                    System.out.println("\nEncerrando conexão...");
+                } else if (numeros.length == 1) {
+                    exibirResposta(cliente.buscar(numeros[0]).get());
+                } else {
+                    for (String resposta : cliente.buscarLote(numeros).get()) {
+                        exibirResposta(resposta);
+                    }
+                }
+            }
+
+        } catch (IOException e) {
+            System.err.println("Erro de comunicação: " + e.getMessage());
+            return;
+        } catch (ExecutionException e) {
+            System.err.println("Erro de comunicação: " + e.getCause().getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        System.out.println("Cliente finalizado.");
+    }
+
+    /**
+     * Estabelece conexão com o servidor
+     */
+    public void conectar() throws IOException {
+        socket = new Socket(host, porta);
+        OpcoesSocket.configurar(socket);
+        // Bufferizadas: cada requisição sai com uma única escrita, e cada resposta
+        // (tamanho e texto, ou um lote inteiro) é lida com o mínimo de leituras no socket
+        saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    /**
+     * Envia requisição ao servidor
+     * Protocolo: [numeroMensagem:int][persistente:boolean]
+     */
+    private void enviarRequisicao(int numeroMensagem, boolean manterConexao) throws IOException {
+        saida.writeInt(numeroMensagem);
+        saida.writeBoolean(manterConexao);
+        saida.flush();
+    }
+
+    /**
+     * Solicita uma mensagem e aguarda a resposta ("OK|mensagem" ou "ERRO|motivo")
+     */
+    public String solicitar(int numeroMensagem, boolean manterConexao) throws IOException {
+        enviarRequisicao(numeroMensagem, manterConexao);
+        return receberResposta();
+    }
+
+    /**
+     * Negocia a versão do quadro de resposta usada no restante da conexão
+     * Protocolo: [MARCADOR_COMANDO:int][COMANDO_NEGOCIAR:byte][VERSAO_NEGOCIAR:byte]
+     * [versaoDesejada:byte], respondido com [versaoAceita:byte]
+     */
+    public int negociarProtocolo(int versaoDesejada) throws IOException {
+        saida.writeInt(Protocolo.MARCADOR_COMANDO);
+        saida.writeByte(Protocolo.COMANDO_NEGOCIAR);
+        saida.writeByte(Protocolo.VERSAO_NEGOCIAR);
+        saida.writeByte(versaoDesejada);
+        saida.flush();
+
+        versaoProtocolo = entrada.readByte();
+        return versaoProtocolo;
+    }
+
+    /**
+     * Solicita várias mensagens em uma única ida e volta
+     * Protocolo: [MARCADOR_COMANDO:int][COMANDO_LOTE:byte][VERSAO_LOTE:byte]
+     * [quantidade:int][numeros:int x quantidade][persistente:boolean]
+     * Resposta: [quantidade:int] seguido de uma resposta writeUTF por número
+     */
+    public String[] solicitarLote(int[] numeros, boolean manterConexao) throws IOException {
+        saida.writeInt(Protocolo.MARCADOR_COMANDO);
+        saida.writeByte(Protocolo.COMANDO_LOTE);
+        saida.writeByte(Protocolo.VERSAO_LOTE);
+        saida.writeInt(numeros.length);
+        for (int numero : numeros) {
+            saida.writeInt(numero);
+        }
+        saida.writeBoolean(manterConexao);
+        saida.flush();
+
+        String[] respostas = new String[entrada.readInt()];
+        for (int i = 0; i < respostas.length; i++) {
+            respostas[i] = receberResposta();
+        }
+        return respostas;
+    }
+
+    /**
+     * Baixa o banco inteiro (quantidade 0) ou uma faixa a partir de inicio (1 a M)
+     * Com o checksum de uma exportação anterior, o servidor só responde
+     * NAO_MODIFICADO se o banco não mudou; Protocolo.SEM_CHECKSUM força o download.
+     * Protocolo: [MARCADOR_COMANDO:int][COMANDO_EXPORTAR:byte][VERSAO_EXPORTAR:byte]
+     * [inicio:int][quantidade:int][checksumConhecido:long][persistente:boolean]
+     */
+    public Exportacao exportar(int inicio, int quantidade, long checksumConhecido,
+                               boolean manterConexao) throws IOException {
+        saida.writeInt(Protocolo.MARCADOR_COMANDO);
+        saida.writeByte(Protocolo.COMANDO_EXPORTAR);
+        saida.writeByte(Protocolo.VERSAO_EXPORTAR);
+        saida.writeInt(inicio);
+        saida.writeInt(quantidade);
+        saida.writeLong(checksumConhecido);
+        saida.writeBoolean(manterConexao);
+        saida.flush();
+
+        byte status = entrada.readByte();
+        long versaoBanco = entrada.readLong();
+        long checksum = entrada.readLong();
+        int total = entrada.readInt();
+        int primeira = entrada.readInt();
+        String[] mensagens = new String[entrada.readInt()];
+        entrada.readLong(); // Tamanho do corpo: útil para quem grava os bytes sem decodificar
+        for (int i = 0; i < mensagens.length; i++) {
+            byte[] texto = new byte[Protocolo.lerVarint(entrada)];
+            entrada.readFully(texto);
+            mensagens[i] = new String(texto, StandardCharsets.UTF_8);
+        }
+        return new Exportacao(status, versaoBanco, checksum, total, primeira, mensagens);
+    }
+
+    /**
+     * Pesquisa as mensagens que contêm os termos da consulta, opcionalmente só
+     * de um autor (texto vazio para não filtrar), até k resultados
+     * Protocolo: [MARCADOR_COMANDO:int][COMANDO_PESQUISAR:byte][VERSAO_PESQUISAR:byte]
+     * [k:int][consulta:texto][autor:texto][persistente:boolean]
+     */
+    public ResultadoPesquisa pesquisar(String consulta, String autor, int k, boolean manterConexao)
+            throws IOException {
+        saida.writeInt(Protocolo.MARCADOR_COMANDO);
+        saida.writeByte(Protocolo.COMANDO_PESQUISAR);
+        saida.writeByte(Protocolo.VERSAO_PESQUISAR);
+        saida.writeInt(k);
+        Protocolo.escreverTexto(saida, consulta);
+        Protocolo.escreverTexto(saida, autor);
+        saida.writeBoolean(manterConexao);
+        saida.flush();
+        return ResultadoPesquisa.ler(entrada, versaoProtocolo);
+    }
+
+    /**
+     * Recebe resposta do servidor
+     */
+    private String receberResposta() throws IOException {
+        if (versaoProtocolo == Protocolo.PROTOCOLO_V2) {
+            return Protocolo.lerRespostaV2(entrada);
+        }
+        String resposta = entrada.readUTF();
+        return resposta.trim(); // Remove espaços de preenchimento
+    }
+
+    /**
+     * Exibe a resposta recebida do servidor
+     */
+    private void exibirResposta(String resposta) {
+        String[] partes = resposta.split("\\|", 2);
+
+        if (partes[0].equals("OK")) {
+            System.out.println("\n" + "=".repeat(70));
+            System.out.println("MENSAGEM RECEBIDA:");
+            System.out.println(partes[1]);
+            System.out.println("=".repeat(70));
+        } else if (partes[0].equals("ERRO")) {
+            System.out.println("\n" + "!".repeat(70));
+            System.out.println("ERRO: " + partes[1]);
+            System.out.println("!".repeat(70));
+        }
+    }
+
+    /**
+     * Exibe os resultados de uma pesquisa, com o número de cada mensagem
+     */
+    private void exibirPesquisa(ResultadoPesquisa resultado) {
+        if (resultado.erro() != null) {
+            exibirResposta(resultado.erro());
+            return;
+        }
+        System.out.println("\n" + resultado.quantidade() + " resultado(s):");
+        for (int i = 0; i < resultado.quantidade(); i++) {
+            String[] partes = resultado.resposta(i).split("\\|", 2);
+            System.out.println("  [" + resultado.numero(i) + "] " + partes[1]);
+        }
+    }
+
+    /**
+     * Encerra a conexão com o servidor
+     */
+    public void desconectar() {
+        try {
+            if (entrada != null) entrada.close();
+            if (saida != null) saida.close();
+            if (socket != null) socket.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar conexão: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Exibe o menu de instruções
+     */
+    private void exibirMenu() {
+        System.out.println("=".repeat(70));
+        System.out.println("INSTRUÇÕES:");
+        System.out.println("  - Digite 0 para receber uma mensagem aleatória");
+        System.out.println("  - Digite um número entre 1 e M para receber uma mensagem específica");
+        System.out.println("  - Digite vários números separados por vírgula para pedir um lote (ex.: 1,2,3)");
+        System.out.println("  - Digite ?termos para pesquisar, opcionalmente com @autor (ex.: ?vida @socrates)");
+        System.out.println("  - Digite -1 para sair");
+        System.out.println("=".repeat(70));
+    }
+
+    /**
+     * Lê uma pesquisa (?termos) ou um ou mais números inteiros (separados por
+     * vírgula), pedindo de novo enquanto a entrada for inválida
+     */
+    private String lerEntrada() {
+        while (true) {
+            String linha = scanner.nextLine().trim();
+            if (linha.startsWith("?") || converterNumeros(linha) != null) {
+                return linha;
+            }
+            System.out.print("Entrada inválida! Digite um número inteiro: ");
+        }
+    }
+
+    /**
+     * Números separados por vírgula, ou null se algum não é inteiro
+     */
+    private static int[] converterNumeros(String linha) {
+        try {
+            String[] partes = linha.split(",");
+            int[] numeros = new int[partes.length];
+            for (int i = 0; i < partes.length; i++) {
+                numeros[i] = Integer.parseInt(partes[i].trim());
+            }
+            return numeros;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Resultado de exportar(): status (Protocolo.EXPORTACAO_*), identificação do
+     * banco e as mensagens da faixa a partir de inicio (vazio sem corpo)
+     */
+    public static final class Exportacao {
+        public final byte status;
+        public final long versaoBanco;
+        public final long checksum;
+        public final int total;
+        public final int inicio;
+        public final String[] mensagens;
+
+        Exportacao(byte status, long versaoBanco, long checksum, int total, int inicio, String[] mensagens) {
+            this.status = status;
+            this.versaoBanco = versaoBanco;
+            this.checksum = checksum;
+            this.total = total;
+            this.inicio = inicio;
+            this.mensagens = mensagens;
+        }
+    }
+}
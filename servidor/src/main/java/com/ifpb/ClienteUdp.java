@@ -0,0 +1,89 @@
+package com.ifpb;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Cliente de consultas avulsas por UDP (ver ServidorUdp)
+ * Cada consulta é um datagrama com um id próprio. Sem resposta no prazo, ela é
+ * enviada de novo com o prazo dobrado, até o número de tentativas; respostas
+ * com outro id (atrasadas, de tentativas anteriores) são descartadas.
+ * Uma instância faz uma consulta por vez: para consultas simultâneas, use uma
+ * instância por thread.
+ */
+public class ClienteUdp implements AutoCloseable {
+    private final DatagramSocket socket;
+    private final long tempoLimiteMs;
+    private final int tentativas;
+    private final byte[] envio = new byte[Protocolo.TAMANHO_REQUISICAO_UDP];
+    private final byte[] recebimento = new byte[Protocolo.MAXIMO_DATAGRAMA];
+    private final DatagramPacket pacoteEnvio = new DatagramPacket(envio, envio.length);
+    private final DatagramPacket pacoteRecebimento = new DatagramPacket(recebimento, recebimento.length);
+    private int proximoId = ThreadLocalRandom.current().nextInt();
+
+    /**
+     * Cliente para o host e a porta UDP configurados (ver Configuracao)
+     */
+    public ClienteUdp() throws SocketException {
+        this(Configuracao.texto("host"), Configuracao.inteiro("udp.porta"), 200, 3);
+    }
+
+    /**
+     * @param tempoLimiteMs prazo da primeira tentativa, dobrado a cada nova tentativa
+     * @param tentativas    envios da consulta antes de desistir
+     */
+    public ClienteUdp(String host, int porta, long tempoLimiteMs, int tentativas) throws SocketException {
+        if (porta <= 0) {
+            throw new IllegalArgumentException("Porta UDP inválida: " + porta + " (configure udp.porta)");
+        }
+        this.tempoLimiteMs = tempoLimiteMs;
+        this.tentativas = Math.max(1, tentativas);
+        // Conectado: o sistema só entrega datagramas vindos do servidor
+        socket = new DatagramSocket();
+        socket.connect(new InetSocketAddress(host, porta));
+    }
+
+    /**
+     * Solicita uma mensagem; o resultado é "OK|mensagem" ou "ERRO|motivo"
+     * Lança SocketTimeoutException se nenhuma tentativa for respondida.
+     */
+    public synchronized String solicitar(int numeroMensagem) throws IOException {
+        int id = proximoId++;
+        ByteBuffer.wrap(envio).putInt(id).putInt(numeroMensagem);
+
+        long prazoMs = tempoLimiteMs;
+        for (int tentativa = 0; tentativa < tentativas; tentativa++, prazoMs *= 2) {
+            socket.send(pacoteEnvio);
+            long limite = System.nanoTime() + prazoMs * 1_000_000;
+            while (true) {
+                long restanteMs = (limite - System.nanoTime()) / 1_000_000;
+                if (restanteMs <= 0) {
+                    break;
+                }
+                socket.setSoTimeout((int) Math.min(restanteMs, Integer.MAX_VALUE));
+                pacoteRecebimento.setLength(recebimento.length);
+                try {
+                    socket.receive(pacoteRecebimento);
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+                int tamanho = pacoteRecebimento.getLength();
+                if (tamanho > 4 && ByteBuffer.wrap(recebimento).getInt(0) == id) {
+                    return Protocolo.lerRespostaV2(new DataInputStream(
+                            new ByteArrayInputStream(recebimento, 4, tamanho - 4)));
+                }
+                // Resposta de uma consulta anterior: continua esperando a desta
+            }
+        }
+        throw new SocketTimeoutException("Sem resposta do servidor após " + tentativas + " tentativas");
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+    }
+}
@@ -0,0 +1,329 @@
+package com.ifpb;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Configuração do servidor e dos clientes, sem recompilar
+ * Cada chave é procurada, nesta ordem de prioridade:
+ *   1. linha de comando:       --porta=5001
+ *   2. propriedade de sistema: -Dporta=5001
+ *   3. variável de ambiente:   MENSAGENS_PORTA=5001 (pontos viram "_")
+ *   4. arquivo de propriedades: mensagens.properties no diretório atual, ou o
+ *      indicado por --config / -Dconfig / MENSAGENS_CONFIG
+ *   5. valor padrão abaixo
+ *
+ * Só as chaves conhecidas são aceitas, para que um erro de digitação no
+ * arquivo ou na linha de comando não passe despercebido. Cada chave tem uma
+ * regra (tipo e faixa), e carregar() confere todas de uma vez no início do
+ * main, antes que algum valor inválido seja lido por um inicializador estático.
+ */
+final class Configuracao {
+    private static final String ARQUIVO_PADRAO = "mensagens.properties";
+    private static final String PREFIXO_AMBIENTE = "MENSAGENS_";
+
+    private static final Map<String, String> PADROES = new LinkedHashMap<>();
+    private static final Map<String, Regra> REGRAS = new HashMap<>();
+
+    /**
+     * Regra de um valor: devolve a descrição do que é esperado, ou null se ele for válido
+     */
+    private interface Regra {
+        String conferir(String valor);
+    }
+
+    private static final Regra TEXTO = valor -> null;
+    private static final Regra BOOLEANO = valor -> {
+        String normalizado = valor.trim().toLowerCase(Locale.ROOT);
+        return normalizado.equals("true") || normalizado.equals("false") ? null : "true ou false";
+    };
+    private static final Regra DECIMAL = valor -> {
+        try {
+            double numero = Double.parseDouble(valor.trim());
+            return numero >= 0 && !Double.isInfinite(numero) ? null : "decimal não negativo";
+        } catch (NumberFormatException e) {
+            return "decimal não negativo";
+        }
+    };
+
+    static {
+        // Rede
+        definir("host", "localhost", TEXTO);
+        definir("porta", "5000", inteiro(0, 65535));
+        definir("aceitadores", "1", inteiro(1, Integer.MAX_VALUE));
+        definir("reuseport", "false", BOOLEANO);
+        definir("backlog", "128", inteiro(0, Integer.MAX_VALUE));
+        definir("udp.porta", "0", inteiro(0, 65535)); // Consultas por UDP; 0 desativa
+        definir("udp.interface", "127.0.0.1", TEXTO); // Interface das consultas UDP; vazio = todas
+        // Opções dos sockets das conexões (0 mantém o padrão do sistema operacional)
+        definir("socket.tcp_nodelay", "true", BOOLEANO);
+        definir("socket.sndbuf", "0", inteiro(0, Integer.MAX_VALUE));
+        definir("socket.rcvbuf", "0", inteiro(0, Integer.MAX_VALUE));
+        definir("socket.keepalive", "false", BOOLEANO);
+        // Banco e protocolo
+        definir("arquivo", "mensagens.txt", TEXTO);
+        definir("armazenamento", "memoria", opcoes("memoria", "mapeado"));
+        definir("aleatoria", "uniforme", opcoes("uniforme", "sem-repeticao"));
+        definir("tamanho.mensagem", "150", inteiro(1, Integer.MAX_VALUE));
+        definir("protocolo", "1", inteiro(Protocolo.PROTOCOLO_V1, Protocolo.PROTOCOLO_MAIS_RECENTE));
+        definir("exportacao", "true", BOOLEANO);
+        definir("pesquisa", "true", BOOLEANO);
+        definir("assinaturas.threads", "1", inteiro(1, Integer.MAX_VALUE)); // Threads que atendem todas as assinaturas
+        // Admissão
+        definir("conexoes.maximo", "10000", inteiro(1, Integer.MAX_VALUE));
+        definir("tempo.ocioso", "300000", inteiro(0, Integer.MAX_VALUE));
+        definir("tempo.leitura", "10000", inteiro(0, Integer.MAX_VALUE));
+        definir("tempo.escrita", "10000", inteiro(0, Integer.MAX_VALUE)); // 0: sem limite
+        definir("limite.taxa", "0", DECIMAL);
+        definir("limite.rajada", "0", DECIMAL); // 0: igual à taxa
+        // Observabilidade
+        definir("metricas.porta", "0", inteiro(0, 65535)); // Porta HTTP das métricas; 0 desativa
+        definir("log.nivel", "requisicao", opcoes("desligado", "erro", "conexao", "requisicao"));
+        definir("log.amostragem", "1", inteiro(1, Integer.MAX_VALUE));
+        definir("log.capacidade", "65536", inteiro(1, Integer.MAX_VALUE));
+    }
+
+    private static final Map<String, String> linhaComando = new HashMap<>();
+    private static final Properties arquivo = new Properties();
+    private static String origemArquivo = null;
+    private static IllegalArgumentException erroArquivo = null; // Relatado por carregar()
+
+    static {
+        try {
+            carregarArquivo(valorExterno("config"), false);
+        } catch (IllegalArgumentException e) {
+            erroArquivo = e;
+        }
+    }
+
+    private Configuracao() {
+    }
+
+    /**
+     * Separa as opções --chave=valor dos argumentos posicionais, que são devolvidos,
+     * e confere todas as chaves e valores
+     * Deve ser chamado no início do main, antes de qualquer leitura de configuração;
+     * erros chegam como IllegalArgumentException com uma mensagem de uma linha.
+     */
+    static String[] carregar(String[] args) {
+        List<String> posicionais = new ArrayList<>();
+        separar(args, Collections.emptyMap(), posicionais);
+        return posicionais.toArray(new String[0]);
+    }
+
+    /**
+     * Como carregar(args), para programas com opções próprias além das chaves de
+     * configuração: devolve essas opções, com os padrões indicados para as ausentes
+     * Chaves que não são nem de configuração nem próprias são rejeitadas.
+     */
+    static Map<String, String> carregar(String[] args, Map<String, String> opcoesProprias) {
+        List<String> posicionais = new ArrayList<>();
+        Map<String, String> opcoes = new LinkedHashMap<>(opcoesProprias);
+        separar(args, opcoes, posicionais);
+        if (!posicionais.isEmpty()) {
+            throw new IllegalArgumentException("Opção inválida: " + posicionais.get(0) + " (use --chave=valor)");
+        }
+        return opcoes;
+    }
+
+    private static void separar(String[] args, Map<String, String> opcoesProprias, List<String> posicionais) {
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                posicionais.add(arg);
+                continue;
+            }
+            int separador = arg.indexOf('=');
+            if (separador < 0) {
+                throw new IllegalArgumentException("Opção inválida: " + arg + " (use --chave=valor)");
+            }
+            String chave = arg.substring(2, separador);
+            String valor = arg.substring(separador + 1);
+            if (opcoesProprias.containsKey(chave)) {
+                opcoesProprias.put(chave, valor);
+                continue;
+            }
+            if (!chave.equals("config")) {
+                validarChave(chave, "linha de comando", opcoesProprias.keySet());
+            }
+            linhaComando.put(chave, valor);
+        }
+        if (linhaComando.containsKey("config")) {
+            erroArquivo = null;
+            carregarArquivo(linhaComando.get("config"), true);
+        }
+        validar();
+    }
+
+    /**
+     * Confere o valor efetivo de cada chave contra a sua regra
+     */
+    private static void validar() {
+        if (erroArquivo != null) {
+            throw erroArquivo;
+        }
+        for (String chave : PADROES.keySet()) {
+            String[] valor = resolver(chave);
+            String esperado = REGRAS.get(chave).conferir(valor[0]);
+            if (esperado != null) {
+                throw new IllegalArgumentException("Valor inválido para " + chave + ": \"" + valor[0] +
+                        "\" (" + valor[1] + "; esperado " + esperado + ")");
+            }
+        }
+    }
+
+    static String texto(String chave) {
+        String[] valor = resolver(chave);
+        return valor[0];
+    }
+
+    static int inteiro(String chave) {
+        String[] valor = resolver(chave);
+        try {
+            return Integer.parseInt(valor[0].trim());
+        } catch (NumberFormatException e) {
+            throw invalido(chave, valor);
+        }
+    }
+
+    static double decimal(String chave) {
+        String[] valor = resolver(chave);
+        try {
+            return Double.parseDouble(valor[0].trim());
+        } catch (NumberFormatException e) {
+            throw invalido(chave, valor);
+        }
+    }
+
+    static boolean booleano(String chave) {
+        String[] valor = resolver(chave);
+        switch (valor[0].trim().toLowerCase(Locale.ROOT)) {
+            case "true":
+                return true;
+            case "false":
+                return false;
+            default:
+                throw invalido(chave, valor);
+        }
+    }
+
+    /**
+     * Configuração efetiva, uma linha por chave com o valor e a sua origem
+     */
+    static String descrever() {
+        StringBuilder texto = new StringBuilder("Configuração efetiva");
+        texto.append(origemArquivo != null ? " (arquivo: " + origemArquivo + "):" : ":");
+        for (String chave : PADROES.keySet()) {
+            String[] valor = resolver(chave);
+            texto.append(String.format("%n  %-20s = %s (%s)", chave, valor[0], valor[1]));
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Valor e origem da chave, seguindo a ordem de prioridade
+     */
+    private static String[] resolver(String chave) {
+        if (!PADROES.containsKey(chave)) {
+            throw new IllegalArgumentException("Chave de configuração desconhecida: " + chave);
+        }
+        if (erroArquivo != null) {
+            throw erroArquivo;
+        }
+        String valor = linhaComando.get(chave);
+        if (valor != null) {
+            return new String[]{valor, "linha de comando"};
+        }
+        valor = System.getProperty(chave);
+        if (valor != null) {
+            return new String[]{valor, "propriedade de sistema"};
+        }
+        valor = System.getenv(variavelAmbiente(chave));
+        if (valor != null) {
+            return new String[]{valor, "ambiente " + variavelAmbiente(chave)};
+        }
+        valor = arquivo.getProperty(chave);
+        if (valor != null) {
+            return new String[]{valor, "arquivo"};
+        }
+        return new String[]{PADROES.get(chave), "padrão"};
+    }
+
+    private static String valorExterno(String chave) {
+        String valor = System.getProperty(chave);
+        return valor != null ? valor : System.getenv(variavelAmbiente(chave));
+    }
+
+    private static String variavelAmbiente(String chave) {
+        return PREFIXO_AMBIENTE + chave.toUpperCase(Locale.ROOT).replace('.', '_');
+    }
+
+    /**
+     * Lê o arquivo de propriedades; o padrão é opcional, um arquivo indicado não
+     */
+    private static void carregarArquivo(String caminho, boolean obrigatorio) {
+        boolean indicado = caminho != null;
+        Path arquivoConfig = Paths.get(indicado ? caminho : ARQUIVO_PADRAO);
+        if (!Files.exists(arquivoConfig)) {
+            if (indicado || obrigatorio) {
+                throw new IllegalArgumentException("Arquivo de configuração não encontrado: " + arquivoConfig);
+            }
+            return;
+        }
+        Properties lidas = new Properties();
+        try (Reader leitor = Files.newBufferedReader(arquivoConfig, StandardCharsets.UTF_8)) {
+            lidas.load(leitor);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Erro ao ler " + arquivoConfig + ": " + e.getMessage(), e);
+        }
+        for (String chave : lidas.stringPropertyNames()) {
+            validarChave(chave, arquivoConfig.toString(), Collections.emptySet());
+        }
+        arquivo.clear();
+        arquivo.putAll(lidas);
+        origemArquivo = arquivoConfig.toString();
+    }
+
+    private static void validarChave(String chave, String origem, Set<String> opcoesProprias) {
+        if (!PADROES.containsKey(chave)) {
+            Set<String> conhecidas = new LinkedHashSet<>(opcoesProprias);
+            conhecidas.addAll(PADROES.keySet());
+            throw new IllegalArgumentException("Chave de configuração desconhecida em " + origem + ": " + chave +
+                    " (conhecidas: " + String.join(", ", conhecidas) + ")");
+        }
+    }
+
+    private static void definir(String chave, String padrao, Regra regra) {
+        PADROES.put(chave, padrao);
+        REGRAS.put(chave, regra);
+    }
+
+    private static Regra inteiro(int minimo, int maximo) {
+        String esperado = minimo == 0 && maximo == Integer.MAX_VALUE ? "inteiro não negativo"
+                : maximo == Integer.MAX_VALUE ? "inteiro a partir de " + minimo
+                : "inteiro entre " + minimo + " e " + maximo;
+        return valor -> {
+            try {
+                int numero = Integer.parseInt(valor.trim());
+                return numero >= minimo && numero <= maximo ? null : esperado;
+            } catch (NumberFormatException e) {
+                return esperado;
+            }
+        };
+    }
+
+    private static Regra opcoes(String... aceitas) {
+        List<String> lista = Arrays.asList(aceitas);
+        String esperado = String.join(" ou ", lista);
+        return valor -> lista.contains(valor) ? null : esperado;
+    }
+
+    private static IllegalArgumentException invalido(String chave, String[] valor) {
+        return new IllegalArgumentException("Valor inválido para " + chave + ": \"" + valor[0] +
+                "\" (" + valor[1] + ")");
+    }
+}
@@ -0,0 +1,323 @@
+package com.ifpb;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Controle de admissão do servidor, compartilhado pelos modos de execução
+ * - limite de conexões simultâneas: acima dele, a conexão recebe um quadro de
+ *   recusa e é fechada logo no accept, sem ocupar thread nem buffers
+ * - fila de conexões pendentes (backlog) limitada no ServerSocket
+ * - tempo ocioso entre requisições, tempo de leitura de uma requisição já
+ *   iniciada e tempo de escrita de uma resposta, para que clientes lentos ou
+ *   mortos (ou que param de ler) não prendam recursos
+ * - limite de requisições por IP (balde de fichas), respondendo com erro em
+ *   vez de enfileirar, para manter a latência dos clientes bem-comportados
+ *
+ * Configuração (ver Configuracao):
+ *   conexoes.maximo  conexões simultâneas (padrão 10000)
+ *   backlog          conexões aguardando accept (padrão 128)
+ *   tempo.ocioso     ms sem requisições antes de fechar (padrão 300000)
+ *   tempo.leitura    ms para completar uma requisição iniciada (padrão 10000)
+ *   tempo.escrita    ms para completar uma escrita no socket (padrão 10000, 0 sem limite)
+ *   limite.taxa      requisições por segundo por IP (padrão 0, sem limite)
+ *   limite.rajada    fichas acumuladas no balde (padrão igual à taxa); um lote
+ *                    maior que a rajada custa a rajada inteira, para poder passar
+ */
+final class ControleAdmissao {
+    static final int MAXIMO_CONEXOES = Configuracao.inteiro("conexoes.maximo");
+    static final int BACKLOG = Configuracao.inteiro("backlog");
+    static final int TEMPO_OCIOSO_MS = Configuracao.inteiro("tempo.ocioso");
+    static final int TEMPO_LEITURA_MS = Configuracao.inteiro("tempo.leitura");
+    static final int TEMPO_ESCRITA_MS = Configuracao.inteiro("tempo.escrita");
+
+    private static final double TAXA_POR_IP = Configuracao.decimal("limite.taxa");
+    private static final double RAJADA_POR_IP = Configuracao.decimal("limite.rajada") > 0
+            ? Configuracao.decimal("limite.rajada") : Math.max(1, TAXA_POR_IP);
+    // Acima deste número de IPs conhecidos, os baldes cheios e sem conexões são
+    // descartados por uma thread própria, fora do caminho das requisições
+    private static final int LIMPEZA_BALDES = 10_000;
+    private static final long INTERVALO_LIMPEZA_MS = 1_000;
+
+    private static final AtomicInteger conexoesAtivas = new AtomicInteger();
+    private static final ConcurrentHashMap<String, BaldeFichas> baldes = new ConcurrentHashMap<>();
+
+    static {
+        if (TAXA_POR_IP > 0) {
+            Thread limpeza = new Thread(ControleAdmissao::limparBaldes, "limpeza-baldes");
+            limpeza.setDaemon(true);
+            limpeza.start();
+        }
+    }
+
+    private ControleAdmissao() {
+    }
+
+    /**
+     * Reserva uma vaga para a nova conexão; false se o servidor está lotado
+     */
+    static boolean admitir() {
+        while (true) {
+            int atuais = conexoesAtivas.get();
+            if (atuais >= MAXIMO_CONEXOES) {
+                return false;
+            }
+            if (conexoesAtivas.compareAndSet(atuais, atuais + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Devolve a vaga de uma conexão admitida que foi encerrada
+     */
+    static void liberar() {
+        conexoesAtivas.decrementAndGet();
+    }
+
+    /**
+     * Balde de fichas do IP para uma consulta avulsa, ou null se não há limite
+     * de taxa configurado
+     */
+    static BaldeFichas baldeDo(String enderecoCliente) {
+        if (TAXA_POR_IP <= 0) {
+            return null;
+        }
+        return baldes.computeIfAbsent(enderecoCliente, ip -> new BaldeFichas(TAXA_POR_IP, RAJADA_POR_IP));
+    }
+
+    /**
+     * Balde do IP para uma conexão, que o guarda até soltarBalde
+     * Um balde reservado nunca é descartado: se fosse, uma nova conexão do mesmo
+     * IP ganharia um balde cheio ao lado do que ainda está em uso.
+     */
+    static BaldeFichas reservarBalde(String enderecoCliente) {
+        if (TAXA_POR_IP <= 0) {
+            return null;
+        }
+        // As reservas são contadas dentro do compute, sob a mesma trava que a limpeza usa
+        return baldes.compute(enderecoCliente, (ip, balde) -> {
+            BaldeFichas reservado = balde != null ? balde : new BaldeFichas(TAXA_POR_IP, RAJADA_POR_IP);
+            reservado.reservas++;
+            return reservado;
+        });
+    }
+
+    /**
+     * Devolve a reserva feita por reservarBalde (null significa sem limite)
+     */
+    static void soltarBalde(String enderecoCliente, BaldeFichas balde) {
+        if (balde != null) {
+            baldes.computeIfPresent(enderecoCliente, (ip, reservado) -> {
+                reservado.reservas--;
+                return reservado;
+            });
+        }
+    }
+
+    /**
+     * Com muitos IPs conhecidos, descarta periodicamente os baldes cheios (IPs
+     * inativos) sem reservas
+     */
+    private static void limparBaldes() {
+        while (true) {
+            try {
+                Thread.sleep(INTERVALO_LIMPEZA_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (baldes.size() <= LIMPEZA_BALDES) {
+                continue;
+            }
+            for (String ip : baldes.keySet()) {
+                baldes.computeIfPresent(ip, (chave, balde) -> balde.reservas == 0 && balde.cheio() ? null : balde);
+            }
+        }
+    }
+
+    /**
+     * Consome fichas do balde (null significa sem limite)
+     */
+    static boolean permitir(BaldeFichas balde, int requisicoes) {
+        if (balde == null || balde.consumir(requisicoes)) {
+            return true;
+        }
+        Metricas.requisicoesLimitadas(requisicoes);
+        return false;
+    }
+
+    /**
+     * Balde de fichas: ganha "taxa" fichas por segundo até "capacidade" e cada
+     * requisição consome uma
+     */
+    static final class BaldeFichas {
+        private final double taxaPorNs;
+        private final double capacidade;
+        private double fichas;
+        private long ultimaRecarga = System.nanoTime();
+        private int reservas = 0; // Conexões que guardam o balde; só muda dentro de compute no mapa
+
+        BaldeFichas(double taxaPorSegundo, double capacidade) {
+            this.taxaPorNs = taxaPorSegundo / 1e9;
+            this.capacidade = capacidade;
+            this.fichas = capacidade;
+        }
+
+        /**
+         * Consome uma ficha por requisição; um lote maior que a capacidade custa
+         * o balde cheio, senão nunca passaria
+         */
+        synchronized boolean consumir(int quantidade) {
+            recarregar();
+            double custo = Math.min(quantidade, capacidade);
+            if (fichas < custo) {
+                return false;
+            }
+            fichas -= custo;
+            return true;
+        }
+
+        /**
+         * Intervalo em que o balde ganha uma ficha
+         */
+        long nsPorFicha() {
+            return (long) Math.ceil(1 / taxaPorNs);
+        }
+
+        synchronized boolean cheio() {
+            recarregar();
+            return fichas >= capacidade;
+        }
+
+        private void recarregar() {
+            long agora = System.nanoTime();
+            fichas = Math.min(capacidade, fichas + (agora - ultimaRecarga) * taxaPorNs);
+            ultimaRecarga = agora;
+        }
+    }
+
+    /**
+     * Prazo de escrita de uma conexão bloqueante
+     * O SO_TIMEOUT só vale para leituras: um cliente que para de ler prenderia
+     * a thread do atendimento em write para sempre. Uma thread vigia única
+     * percorre as conexões e fecha o socket de quem está há mais de
+     * TEMPO_ESCRITA_MS em uma mesma escrita, o que a faz falhar.
+     */
+    static final class PrazoEscrita {
+        private static final long SEM_ESCRITA = Long.MIN_VALUE;
+        private static final Set<PrazoEscrita> conexoes = ConcurrentHashMap.newKeySet();
+
+        static {
+            if (TEMPO_ESCRITA_MS > 0) {
+                Thread vigia = new Thread(PrazoEscrita::vigiar, "prazo-escrita");
+                vigia.setDaemon(true);
+                vigia.start();
+            }
+        }
+
+        private final Socket socket;
+        private volatile long inicioEscrita = SEM_ESCRITA;
+        private volatile boolean esgotado = false;
+
+        PrazoEscrita(Socket socket) {
+            this.socket = socket;
+        }
+
+        /**
+         * Envolve a saída do socket, passando a vigiar cada escrita e flush nela
+         */
+        OutputStream envolver(OutputStream saida) {
+            if (TEMPO_ESCRITA_MS <= 0) {
+                return saida;
+            }
+            conexoes.add(this);
+            return new FilterOutputStream(saida) {
+                @Override
+                public void write(int b) throws IOException {
+                    iniciar();
+                    try {
+                        out.write(b);
+                    } finally {
+                        concluir();
+                    }
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    iniciar();
+                    try {
+                        out.write(b, off, len);
+                    } finally {
+                        concluir();
+                    }
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    iniciar();
+                    try {
+                        out.flush();
+                    } finally {
+                        concluir();
+                    }
+                }
+            };
+        }
+
+        /**
+         * Marca o início de uma escrita feita fora da saída envolvida (ex.: transferTo)
+         */
+        void iniciar() {
+            inicioEscrita = System.nanoTime();
+        }
+
+        void concluir() {
+            inicioEscrita = SEM_ESCRITA;
+        }
+
+        /**
+         * Se a conexão foi fechada pela vigia, e não pelo cliente
+         */
+        boolean esgotado() {
+            return esgotado;
+        }
+
+        /**
+         * Para de vigiar a conexão; deve ser chamado ao encerrá-la
+         */
+        void encerrar() {
+            conexoes.remove(this);
+        }
+
+        private static void vigiar() {
+            long prazoNs = TEMPO_ESCRITA_MS * 1_000_000L;
+            // Fecha entre 1x e 1,25x o prazo, sem percorrer as conexões a toda hora
+            long intervaloMs = Math.max(10, TEMPO_ESCRITA_MS / 4);
+            while (true) {
+                try {
+                    Thread.sleep(intervaloMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long agora = System.nanoTime();
+                for (PrazoEscrita prazo : conexoes) {
+                    long inicio = prazo.inicioEscrita;
+                    if (inicio != SEM_ESCRITA && agora - inicio > prazoNs && !prazo.esgotado) {
+                        prazo.esgotado = true;
+                        Metricas.tempoEsgotado();
+                        try {
+                            prazo.socket.close();
+                        } catch (IOException e) {
+                            // A escrita presa falha de qualquer forma
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
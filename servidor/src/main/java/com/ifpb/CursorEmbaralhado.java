@@ -0,0 +1,75 @@
+package com.ifpb;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Cursor embaralhado de uma conexão
+ * Percorre todas as mensagens em ordem aleatória, sem repetir nenhuma até
+ * completar o ciclo, e então sorteia uma nova ordem. A permutação é calculada
+ * por uma rede de Feistel com chaves sorteadas a cada ciclo (com "cycle
+ * walking" para caber em 0..total-1), então ocupa memória constante mesmo em
+ * bancos com milhões de mensagens. Deve ser usado por uma única thread.
+ */
+final class CursorEmbaralhado implements SelecaoAleatoria {
+    private static final int RODADAS = 3;
+
+    private final long[] chaves = new long[RODADAS];
+    private int total = -1;
+    private int bitsMetade;
+    private long mascara;
+    private int posicao;
+
+    @Override
+    public int proximoIndice(int total) {
+        // Sem mensagens o "cycle walking" nunca terminaria: falha como a seleção uniforme
+        if (total <= 0) {
+            throw new IllegalArgumentException("Banco sem mensagens para sortear");
+        }
+        // Novo ciclo ao terminar o anterior ou quando o banco foi recarregado
+        if (total != this.total || posicao >= total) {
+            iniciarCiclo(total);
+        }
+
+        long valor = posicao++;
+        do {
+            valor = permutar(valor);
+        } while (valor >= total);
+        return (int) valor;
+    }
+
+    private void iniciarCiclo(int total) {
+        this.total = total;
+        this.posicao = 0;
+        int bits = Math.max(2, 32 - Integer.numberOfLeadingZeros(total - 1));
+        this.bitsMetade = (bits + 1) / 2;
+        this.mascara = (1L << bitsMetade) - 1;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < RODADAS; i++) {
+            chaves[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Bijeção sobre 2 * bitsMetade bits
+     */
+    private long permutar(long valor) {
+        long esquerda = valor >>> bitsMetade;
+        long direita = valor & mascara;
+        for (int i = 0; i < RODADAS; i++) {
+            long proxima = esquerda ^ (misturar(direita ^ chaves[i]) & mascara);
+            esquerda = direita;
+            direita = proxima;
+        }
+        return (esquerda << bitsMetade) | direita;
+    }
+
+    /**
+     * Função de mistura do SplitMix64
+     */
+    private static long misturar(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
@@ -0,0 +1,39 @@
+package com.ifpb;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sorteia números de 1 a N com distribuição de Zipf: a probabilidade do número
+ * k é proporcional a 1 / k^expoente, de modo que poucos números concentram a
+ * maior parte dos acessos (como citações populares). A distribuição acumulada
+ * é calculada uma vez e cada sorteio faz uma busca binária sobre ela.
+ */
+final class DistribuicaoZipf {
+    private final double[] acumulada;
+
+    DistribuicaoZipf(int quantidade, double expoente) {
+        if (quantidade < 1) {
+            throw new IllegalArgumentException("Faixa do Zipf deve ser positiva: " + quantidade);
+        }
+        acumulada = new double[quantidade];
+        double soma = 0;
+        for (int k = 1; k <= quantidade; k++) {
+            soma += 1 / Math.pow(k, expoente);
+            acumulada[k - 1] = soma;
+        }
+        for (int i = 0; i < quantidade; i++) {
+            acumulada[i] /= soma;
+        }
+    }
+
+    /**
+     * Próximo número sorteado, de 1 a N
+     */
+    int proximo() {
+        double u = ThreadLocalRandom.current().nextDouble();
+        int posicao = Arrays.binarySearch(acumulada, u);
+        int indice = posicao >= 0 ? posicao : -posicao - 1;
+        return Math.min(indice, acumulada.length - 1) + 1;
+    }
+}
@@ -0,0 +1,405 @@
+package com.ifpb;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Atendimento das assinaturas (COMANDO_ASSINAR), compartilhado pelos modos de execução
+ * Em vez de o cliente pedir a mensagem 0 em um laço, pagando uma ida e volta
+ * por mensagem, o servidor envia o fluxo por conta própria: mensagens aleatórias
+ * ou o banco em sequência, na taxa pedida.
+ *
+ * Quem decodifica o comando (AtendimentoCliente ou ServidorNio) entrega o canal
+ * da conexão a um dos poucos loops daqui (assinaturas.threads, padrão 1), e a
+ * thread de atendimento fica livre. Cada loop tem um Selector para os créditos
+ * recebidos e os sockets cheios, e uma agenda com a hora do próximo envio de
+ * cada assinatura pronta, que define o tempo de espera do select. Assim milhares
+ * de assinantes custam um timer cada, e não uma thread bloqueada cada.
+ *
+ * O controle de fluxo é por créditos: cada mensagem consome um, e sem créditos
+ * a assinatura sai da agenda até o cliente conceder mais. O servidor só produz
+ * mensagens quando o buffer de escrita da assinatura está vazio, então um
+ * consumidor lento ocupa no máximo esse buffer e o do socket, nunca uma fila
+ * crescente. O limite de taxa por IP vale para cada mensagem enviada, e uma
+ * assinatura sem créditos nem escrita por mais que tempo.ocioso é encerrada.
+ */
+final class DistribuidorAssinaturas {
+    private static final int TAMANHO_BUFFER_LEITURA = 64;
+    // Atraso que pode ser recuperado em rajada depois de esperar créditos ou o socket
+    private static final long ATRASO_MAXIMO_NS = 20_000_000;
+    private static final long INTERVALO_VARREDURA_MS = 1000;
+    private static final long MAXIMO_CREDITOS = Integer.MAX_VALUE;
+
+    private static final LoopAssinaturas[] loops = iniciarLoops(Configuracao.inteiro("assinaturas.threads"));
+    private static final AtomicInteger proximoLoop = new AtomicInteger();
+
+    private DistribuidorAssinaturas() {
+    }
+
+    /**
+     * Verifica o corpo do comando: modo conhecido, taxa e créditos não negativos
+     * e, na sequencial, início entre 1 e o total de mensagens
+     */
+    static boolean valida(byte modo, int inicio, int taxa, int creditos) {
+        if (taxa < 0 || creditos < 0) {
+            return false;
+        }
+        if (modo == Protocolo.ASSINATURA_ALEATORIA) {
+            return true;
+        }
+        return modo == Protocolo.ASSINATURA_SEQUENCIAL && inicio >= 1 && inicio <= ServidorMensagens.totalMensagens();
+    }
+
+    /**
+     * Assume a conexão da assinatura. Os bytes já recebidos depois do comando
+     * (créditos em pipeline) e as respostas ainda não escritas seguem com ela,
+     * e a partir daqui a conexão é encerrada pelo loop, não mais por quem a entregou.
+     */
+    static void entregar(Assinatura assinatura, byte[] recebidos, byte[] porEscrever) {
+        assinatura.leitura = ByteBuffer.allocate(Math.max(TAMANHO_BUFFER_LEITURA, recebidos.length));
+        assinatura.leitura.put(recebidos);
+        assinatura.escrita.put(porEscrever);
+        Metricas.assinaturaIniciada();
+        RegistroEventos.assinatura(assinatura.enderecoCliente, assinatura.sequencial ? assinatura.proximoNumero : 0,
+                assinatura.taxa);
+        loops[Math.floorMod(proximoLoop.getAndIncrement(), loops.length)].registrar(assinatura);
+    }
+
+    private static LoopAssinaturas[] iniciarLoops(int quantidade) {
+        LoopAssinaturas[] criados = new LoopAssinaturas[Math.max(1, quantidade)];
+        for (int i = 0; i < criados.length; i++) {
+            try {
+                criados[i] = new LoopAssinaturas();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Thread thread = new Thread(criados[i], "assinaturas-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return criados;
+    }
+
+    /**
+     * Loop que atende um subconjunto das assinaturas
+     */
+    static final class LoopAssinaturas implements Runnable {
+        private final Selector selector;
+        private final Queue<Assinatura> pendentes = new ConcurrentLinkedQueue<>();
+        // Assinaturas com créditos e socket livre, pela hora do próximo envio
+        private final PriorityQueue<Assinatura> agenda =
+                new PriorityQueue<>(Comparator.comparingLong(assinatura -> assinatura.proximoEnvio));
+
+        LoopAssinaturas() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        void registrar(Assinatura assinatura) {
+            pendentes.add(assinatura);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            long proximaVarredura = System.nanoTime() + INTERVALO_VARREDURA_MS * 1_000_000;
+            while (true) {
+                try {
+                    Assinatura primeira = agenda.peek();
+                    long esperaMs = INTERVALO_VARREDURA_MS;
+                    if (primeira != null) {
+                        long esperaNs = primeira.proximoEnvio - System.nanoTime();
+                        esperaMs = Math.min(esperaMs, (esperaNs + 999_999) / 1_000_000);
+                    }
+                    if (esperaMs <= 0) {
+                        selector.selectNow();
+                    } else {
+                        selector.select(esperaMs);
+                    }
+                    registrarPendentes();
+
+                    Iterator<SelectionKey> chaves = selector.selectedKeys().iterator();
+                    while (chaves.hasNext()) {
+                        SelectionKey chave = chaves.next();
+                        chaves.remove();
+                        Assinatura assinatura = (Assinatura) chave.attachment();
+                        try {
+                            if (chave.isValid() && chave.isReadable()) {
+                                assinatura.lerCreditos();
+                            }
+                            if (chave.isValid() && chave.isWritable()) {
+                                assinatura.escrever();
+                            }
+                            agendar(assinatura);
+                        } catch (IOException e) {
+                            RegistroEventos.erro(assinatura.enderecoCliente, e.getMessage());
+                            assinatura.fechar();
+                        } catch (RuntimeException e) {
+                            // Uma assinatura com falha não pode parar o loop das demais
+                            RegistroEventos.erro(assinatura.enderecoCliente, "falha na assinatura: " + e);
+                            assinatura.fechar();
+                        }
+                    }
+
+                    long agora = System.nanoTime();
+                    while ((primeira = agenda.peek()) != null && primeira.proximoEnvio - agora <= 0) {
+                        agenda.poll();
+                        primeira.agendada = false;
+                        try {
+                            primeira.enviar(agora);
+                            agendar(primeira);
+                        } catch (IOException e) {
+                            RegistroEventos.erro(primeira.enderecoCliente, e.getMessage());
+                            primeira.fechar();
+                        } catch (RuntimeException e) {
+                            // Uma assinatura com falha não pode parar o loop das demais
+                            RegistroEventos.erro(primeira.enderecoCliente, "falha na assinatura: " + e);
+                            primeira.fechar();
+                        }
+                    }
+
+                    if (agora - proximaVarredura >= 0) {
+                        fecharOciosas(agora);
+                        proximaVarredura = agora + INTERVALO_VARREDURA_MS * 1_000_000;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Erro no loop de assinaturas: " + e);
+                }
+            }
+        }
+
+        /**
+         * Põe a assinatura na agenda se ela tem créditos e nada pendente no socket
+         */
+        private void agendar(Assinatura assinatura) {
+            if (!assinatura.agendada && assinatura.pronta()) {
+                assinatura.agendada = true;
+                agenda.add(assinatura);
+            }
+        }
+
+        private void registrarPendentes() {
+            Assinatura assinatura;
+            while ((assinatura = pendentes.poll()) != null) {
+                try {
+                    assinatura.canal.configureBlocking(false);
+                    assinatura.chave = assinatura.canal.register(selector, SelectionKey.OP_READ, assinatura);
+                    assinatura.processarCreditos();
+                    assinatura.enviar(System.nanoTime());
+                    agendar(assinatura);
+                } catch (IOException e) {
+                    RegistroEventos.erro(assinatura.enderecoCliente, e.getMessage());
+                    assinatura.fechar();
+                } catch (RuntimeException e) {
+                    RegistroEventos.erro(assinatura.enderecoCliente, "falha na assinatura: " + e);
+                    assinatura.fechar();
+                }
+            }
+        }
+
+        /**
+         * Fecha as assinaturas sem créditos recebidos nem bytes escritos além do tempo ocioso
+         */
+        private void fecharOciosas(long agora) {
+            for (SelectionKey chave : selector.keys()) {
+                Assinatura assinatura = (Assinatura) chave.attachment();
+                if (chave.isValid() && agora - assinatura.ultimaAtividade > ControleAdmissao.TEMPO_OCIOSO_MS * 1_000_000L) {
+                    Metricas.tempoEsgotado();
+                    RegistroEventos.tempoEsgotado(assinatura.enderecoCliente);
+                    assinatura.fechar();
+                }
+            }
+        }
+    }
+
+    /**
+     * Estado de uma assinatura; depois de entregue, só o seu loop a altera
+     */
+    static final class Assinatura {
+        private final SocketChannel canal;
+        private final String enderecoCliente;
+        private final ControleAdmissao.BaldeFichas balde; // null: sem limite de taxa
+        private final int versaoProtocolo;
+        private final SelecaoAleatoria selecao;
+        private final boolean sequencial;
+        private final int taxa;
+        private final long intervaloNs; // 0: sem limite de taxa
+        private final ByteBuffer escrita = ByteBuffer.allocate(ServidorNio.TAMANHO_BUFFER_ESCRITA);
+        private ByteBuffer leitura;
+        private ByteBuffer transbordo; // Quadro que não coube no buffer de escrita
+        private SelectionKey chave;
+        private int proximoNumero;
+        private long creditos;
+        private long proximoEnvio = System.nanoTime();
+        private long ultimaAtividade = System.nanoTime();
+        private boolean fim = false; // Quadro de fim enfileirado: encerra a saída depois de escrevê-lo
+        private boolean saidaEncerrada = false;
+        private boolean agendada = false;
+
+        /**
+         * Parâmetros já conferidos por DistribuidorAssinaturas.valida
+         */
+        Assinatura(SocketChannel canal, int versaoProtocolo, SelecaoAleatoria selecao, byte modo, int inicio,
+                   int taxa, int creditos) {
+            this.canal = canal;
+            this.enderecoCliente = canal.socket().getInetAddress().getHostAddress();
+            this.balde = ControleAdmissao.reservarBalde(enderecoCliente);
+            this.versaoProtocolo = versaoProtocolo;
+            this.selecao = selecao;
+            this.sequencial = modo == Protocolo.ASSINATURA_SEQUENCIAL;
+            this.proximoNumero = inicio;
+            this.taxa = taxa;
+            this.intervaloNs = taxa == 0 ? 0 : 1_000_000_000L / taxa;
+            this.creditos = creditos;
+        }
+
+        /**
+         * Com créditos, sem fim enfileirado e com tudo o que foi produzido já no socket
+         */
+        boolean pronta() {
+            return canal.isOpen() && !fim && creditos > 0 && escrita.position() == 0 && transbordo == null;
+        }
+
+        void lerCreditos() throws IOException {
+            int lidos = canal.read(leitura);
+            if (lidos == -1) {
+                RegistroEventos.clienteDesconectou(enderecoCliente);
+                fechar();
+                return;
+            }
+            if (fim) {
+                // Créditos que chegam depois do fim são descartados até o cliente fechar
+                leitura.clear();
+                return;
+            }
+            processarCreditos();
+        }
+
+        /**
+         * Soma os créditos completos do buffer de leitura: [creditos:int] com valor > 0
+         */
+        void processarCreditos() {
+            leitura.flip();
+            while (leitura.remaining() >= 4) {
+                int concedidos = leitura.getInt();
+                if (concedidos <= 0) {
+                    Metricas.erroDecodificacao();
+                    RegistroEventos.erro(enderecoCliente, "créditos inválidos na assinatura: " + concedidos);
+                    fechar();
+                    return;
+                }
+                creditos = Math.min(MAXIMO_CREDITOS, creditos + concedidos);
+                ultimaAtividade = System.nanoTime();
+            }
+            leitura.compact();
+        }
+
+        /**
+         * Produz as mensagens devidas até agora e as escreve no socket
+         */
+        void enviar(long agora) throws IOException {
+            if (!canal.isOpen()) {
+                return;
+            }
+            produzir(agora);
+            escrever();
+        }
+
+        /**
+         * Enfileira uma mensagem por crédito enquanto a hora do envio já chegou e há
+         * espaço no buffer; a sequencial termina com o quadro de fim do banco
+         */
+        private void produzir(long agora) {
+            // Depois de uma espera, recupera no máximo ATRASO_MAXIMO_NS de mensagens de uma vez
+            proximoEnvio = Math.max(proximoEnvio, agora - ATRASO_MAXIMO_NS);
+            while (!fim && transbordo == null && escrita.remaining() >= 4 + ServidorNio.TAMANHO_MAXIMO_QUADRO) {
+                int total = ServidorMensagens.totalMensagens();
+                if (sequencial && proximoNumero > total) {
+                    escrita.putInt(Protocolo.FIM_ASSINATURA);
+                    enfileirar(Protocolo.quadroFimBanco(versaoProtocolo));
+                    fim = true;
+                    return;
+                }
+                if (creditos == 0 || proximoEnvio - agora > 0) {
+                    return;
+                }
+                if (!ControleAdmissao.permitir(balde, 1)) {
+                    // Espera a próxima ficha do balde em vez de responder com erro
+                    proximoEnvio = agora + balde.nsPorFicha();
+                    return;
+                }
+                int numero = sequencial ? proximoNumero++ : selecao.proximoIndice(total) + 1;
+                escrita.putInt(numero);
+                enfileirar(ServidorMensagens.obterQuadroResposta(numero, versaoProtocolo));
+                creditos--;
+                proximoEnvio += intervaloNs;
+            }
+        }
+
+        private void enfileirar(byte[] quadro) {
+            if (quadro.length <= escrita.remaining()) {
+                escrita.put(quadro);
+            } else {
+                transbordo = ByteBuffer.wrap(quadro);
+            }
+        }
+
+        void escrever() throws IOException {
+            if (escrita.position() > 0) {
+                escrita.flip();
+                int escritos = canal.write(escrita);
+                Metricas.bytesEscritos(escritos);
+                if (escritos > 0) {
+                    ultimaAtividade = System.nanoTime();
+                }
+                escrita.compact();
+            }
+            if (escrita.position() == 0 && transbordo != null) {
+                Metricas.bytesEscritos(canal.write(transbordo));
+                if (!transbordo.hasRemaining()) {
+                    transbordo = null;
+                }
+            }
+
+            if (escrita.position() > 0 || transbordo != null) {
+                // Socket cheio: continua recebendo créditos enquanto espera OP_WRITE
+                chave.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } else if (fim && !saidaEncerrada) {
+                // Fechar com créditos ainda por ler mandaria um RST, que pode descartar o
+                // quadro de fim no caminho: encerra só a saída e espera o cliente fechar
+                canal.shutdownOutput();
+                saidaEncerrada = true;
+                chave.interestOps(SelectionKey.OP_READ);
+            } else {
+                chave.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        void fechar() {
+            if (!canal.isOpen()) {
+                return;
+            }
+            Metricas.assinaturaEncerrada();
+            Metricas.conexaoFechada();
+            ControleAdmissao.liberar();
+            ControleAdmissao.soltarBalde(enderecoCliente, balde);
+            if (chave != null) {
+                chave.cancel();
+            }
+            try {
+                canal.close();
+            } catch (IOException e) {
+                RegistroEventos.erro(enderecoCliente, "ao fechar socket: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.ifpb;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Entrada bufferizada do socket de uma conexão bloqueante
+ * Cada leitura no socket traz tudo o que já chegou, até o tamanho do buffer: a
+ * requisição inteira e as que vieram em pipeline atrás dela, em vez de uma
+ * chamada de sistema por campo lido pelo DataInputStream. O buffer pertence à
+ * conexão e é reaproveitado em todas as requisições.
+ */
+final class EntradaBufferizada extends BufferedInputStream {
+    static final int TAMANHO_BUFFER = 8 * 1024;
+
+    EntradaBufferizada(InputStream entrada) {
+        super(entrada, TAMANHO_BUFFER);
+    }
+
+    /**
+     * Bytes já recebidos e ainda não consumidos, sem consultar o socket
+     * (available() faria uma chamada de sistema a cada requisição)
+     */
+    synchronized int bufferizados() {
+        return count - pos;
+    }
+
+    /**
+     * Retira os bytes já recebidos e ainda não consumidos, para quem passa a ler
+     * o socket sem este stream (ver DistribuidorAssinaturas)
+     */
+    synchronized byte[] retirarBufferizados() {
+        byte[] restantes = Arrays.copyOfRange(buf, pos, count);
+        pos = count;
+        return restantes;
+    }
+}
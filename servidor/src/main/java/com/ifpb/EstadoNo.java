@@ -0,0 +1,35 @@
+package com.ifpb;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Resposta do comando ESTADO: identifica o snapshot do banco em uso em um nó
+ * A versão recomeça de 1 a cada início do servidor, então nós diferentes só
+ * podem ser comparados pelo checksum do conteúdo.
+ */
+public final class EstadoNo {
+    public final long versaoBanco;
+    public final long checksum;
+    public final int total;
+    public final long carregadoEm; // Instante da carga, em ms desde a época
+
+    EstadoNo(long versaoBanco, long checksum, int total, long carregadoEm) {
+        this.versaoBanco = versaoBanco;
+        this.checksum = checksum;
+        this.total = total;
+        this.carregadoEm = carregadoEm;
+    }
+
+    /**
+     * Lê a resposta: [versaoBanco:long][checksum:long][total:int][carregadoEm:long]
+     */
+    static EstadoNo ler(DataInputStream entrada) throws IOException {
+        return new EstadoNo(entrada.readLong(), entrada.readLong(), entrada.readInt(), entrada.readLong());
+    }
+
+    @Override
+    public String toString() {
+        return "versão " + versaoBanco + " | checksum " + Long.toHexString(checksum) + " | " + total + " mensagens";
+    }
+}
@@ -0,0 +1,257 @@
+package com.ifpb;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador de Carga do Serviço de Mensagens
+ * Dispara requisições por N conexões simultâneas usando o protocolo do
+ * ClienteMensagens e mede vazão e latência (p50/p99/p99.9/máx).
+ *
+ * Laço fechado (--taxa=0): cada conexão envia a próxima requisição assim que
+ * recebe a resposta, medindo a vazão máxima.
+ * Laço aberto (--taxa=R): as requisições seguem um cronograma fixo de R por
+ * segundo e a latência é medida a partir do horário planejado, e não do envio
+ * real, para não esconder atrasos (coordinated omission).
+ *
+ * Com --pool=P, as N threads compartilham P conexões do ClienteAssincrono em
+ * pipeline, em vez de cada uma ter a sua conexão. Com --zipf=S, os números
+ * pedidos seguem uma distribuição de Zipf de expoente S sobre 1..--faixa, e
+ * --cache=C (com --pool) ativa um CacheProximo de C entradas e TTL --ttl ms.
+ *
+ * Com --modo=udp, cada thread faz consultas avulsas por datagrama com seu
+ * próprio ClienteUdp (servidor e gerador com -Dudp.porta=N), para comparar
+ * com o modo transiente, que abre uma conexão TCP por consulta.
+ *
+ * Uso: java com.ifpb.GeradorCarga [--conexoes=N] [--taxa=R] [--duracao=S]
+ *      [--aquecimento=S] [--modo=persistente|transiente|udp] [--numero=0] [--pool=P]
+ *      [--zipf=S --faixa=M] [--cache=C --ttl=MS] [--chave=valor de configuração]
+ */
+public class GeradorCarga {
+    // Opções próprias do gerador e seus padrões
+    private static final Map<String, String> OPCOES = new LinkedHashMap<>();
+
+    static {
+        OPCOES.put("conexoes", "10");
+        OPCOES.put("taxa", "0");
+        OPCOES.put("duracao", "10");
+        OPCOES.put("aquecimento", "2");
+        OPCOES.put("modo", "persistente");
+        OPCOES.put("numero", "0");
+        OPCOES.put("pool", "0");
+        OPCOES.put("zipf", "0");
+        OPCOES.put("faixa", "1000");
+        OPCOES.put("cache", "0");
+        OPCOES.put("ttl", "60000");
+    }
+
+    private final int conexoes;
+    private final double taxa;
+    private final int duracaoSegundos;
+    private final int aquecimentoSegundos;
+    private final boolean persistente;
+    private final boolean udp;
+    private final int numeroMensagem;
+    private final int tamanhoPool;
+    private final DistribuicaoZipf distribuicao; // null: sempre numeroMensagem
+    private final CacheProximo cache;
+
+    private final HistogramaLatencia histograma = new HistogramaLatencia();
+    private final AtomicLong respostasOk = new AtomicLong();
+    private final AtomicLong respostasErro = new AtomicLong();
+    private final AtomicLong falhas = new AtomicLong();
+
+    public GeradorCarga(int conexoes, double taxa, int duracaoSegundos, int aquecimentoSegundos,
+                        String modo, int numeroMensagem, int tamanhoPool,
+                        DistribuicaoZipf distribuicao, CacheProximo cache) {
+        if (!modo.equals("persistente") && !modo.equals("transiente") && !modo.equals("udp")) {
+            throw new IllegalArgumentException("Modo desconhecido: " + modo + " (use persistente, transiente ou udp)");
+        }
+        if (cache != null && tamanhoPool <= 0) {
+            throw new IllegalArgumentException("O cache próximo exige o cliente com pool (--pool=P)");
+        }
+        if (modo.equals("udp") && tamanhoPool > 0) {
+            throw new IllegalArgumentException("O modo udp não usa o pool de conexões (--pool)");
+        }
+        this.conexoes = conexoes;
+        this.taxa = taxa;
+        this.duracaoSegundos = duracaoSegundos;
+        this.aquecimentoSegundos = aquecimentoSegundos;
+        this.persistente = modo.equals("persistente");
+        this.udp = modo.equals("udp");
+        this.numeroMensagem = numeroMensagem;
+        this.tamanhoPool = tamanhoPool;
+        this.distribuicao = distribuicao;
+        this.cache = cache;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        GeradorCarga gerador;
+        try {
+            // Opções de configuração (--host, --porta, --udp.porta...) também são aceitas
+            Map<String, String> opcoes = Configuracao.carregar(args, OPCOES);
+            double expoenteZipf = Double.parseDouble(opcoes.get("zipf"));
+            int capacidadeCache = Integer.parseInt(opcoes.get("cache"));
+            gerador = new GeradorCarga(
+                    Integer.parseInt(opcoes.get("conexoes")),
+                    Double.parseDouble(opcoes.get("taxa")),
+                    Integer.parseInt(opcoes.get("duracao")),
+                    Integer.parseInt(opcoes.get("aquecimento")),
+                    opcoes.get("modo"),
+                    Integer.parseInt(opcoes.get("numero")),
+                    Integer.parseInt(opcoes.get("pool")),
+                    expoenteZipf > 0
+                            ? new DistribuicaoZipf(Integer.parseInt(opcoes.get("faixa")), expoenteZipf)
+                            : null,
+                    capacidadeCache > 0
+                            ? new CacheProximo(capacidadeCache, Long.parseLong(opcoes.get("ttl")))
+                            : null);
+        } catch (NumberFormatException e) {
+            System.err.println("Erro de configuração: número inválido (" + e.getMessage() + ")");
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Erro de configuração: " + e.getMessage());
+            return;
+        }
+        gerador.executar();
+    }
+
+    /**
+     * Executa a carga e imprime o relatório
+     */
+    public void executar() throws InterruptedException {
+        System.out.println("=== GERADOR DE CARGA ===");
+        System.out.println("Conexões: " + conexoes + " | Modo: " + (udp ? "udp" : persistente ? "persistente" : "transiente") +
+                " | Taxa: " + (taxa > 0 ? String.format("%.0f req/s (laço aberto)", taxa) : "máxima (laço fechado)") +
+                " | Duração: " + duracaoSegundos + " s (+" + aquecimentoSegundos + " s de aquecimento)" +
+                (tamanhoPool > 0 ? " | Pool: " + tamanhoPool + " conexões compartilhadas" : "") +
+                (distribuicao != null ? " | Números: Zipf" : " | Número: " + numeroMensagem) +
+                (cache != null ? " | Cache próximo ativo" : ""));
+        ClienteAssincrono clientePool = tamanhoPool > 0
+                ? new ClienteAssincrono(Configuracao.texto("host"), Configuracao.inteiro("porta"), tamanhoPool, 10_000, Protocolo.PROTOCOLO_V1, cache)
+                : null;
+
+        long inicio = System.nanoTime() + 100_000_000L; // Dá tempo para todas as threads começarem juntas
+        long inicioMedicao = inicio + aquecimentoSegundos * 1_000_000_000L;
+        long fim = inicioMedicao + duracaoSegundos * 1_000_000_000L;
+        // Cada conexão recebe uma fatia da taxa, com início defasado para espalhar as requisições
+        long intervaloNs = taxa > 0 ? (long) (1e9 * conexoes / taxa) : 0;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < conexoes; i++) {
+            long primeiroEnvio = inicio + (intervaloNs * i) / conexoes;
+            Thread thread = new Thread(() -> executarConexao(clientePool, primeiroEnvio, intervaloNs, inicioMedicao, fim),
+                    "carga-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (clientePool != null) {
+            clientePool.close();
+        }
+
+        imprimirRelatorio();
+    }
+
+    /**
+     * Laço de uma conexão: aguarda o horário planejado (laço aberto), envia,
+     * aguarda a resposta e registra a latência. Com clientePool, a requisição
+     * sai por uma das conexões compartilhadas.
+     */
+    private void executarConexao(ClienteAssincrono clientePool, long primeiroEnvio, long intervaloNs,
+                                 long inicioMedicao, long fim) {
+        ClienteMensagens cliente = null;
+        ClienteUdp clienteUdp = null;
+        long planejado = primeiroEnvio;
+
+        while (true) {
+            long agora = System.nanoTime();
+            if (intervaloNs > 0) {
+                while (agora < planejado) {
+                    LockSupport.parkNanos(planejado - agora);
+                    agora = System.nanoTime();
+                }
+            } else {
+                planejado = agora;
+            }
+            if (planejado >= fim) {
+                break;
+            }
+
+            try {
+                int numero = distribuicao != null ? distribuicao.proximo() : numeroMensagem;
+                String resposta;
+                if (clientePool != null) {
+                    resposta = clientePool.buscar(numero).get();
+                } else if (udp) {
+                    if (clienteUdp == null) {
+                        clienteUdp = new ClienteUdp();
+                    }
+                    resposta = clienteUdp.solicitar(numero);
+                } else {
+                    if (cliente == null) {
+                        cliente = new ClienteMensagens();
+                        cliente.conectar();
+                    }
+                    resposta = cliente.solicitar(numero, persistente);
+                }
+                long latencia = System.nanoTime() - planejado;
+
+                if (!persistente && cliente != null) {
+                    cliente.desconectar();
+                    cliente = null;
+                }
+                if (planejado >= inicioMedicao) {
+                    histograma.registrar(latencia);
+                    (resposta.startsWith("OK|") ? respostasOk : respostasErro).incrementAndGet();
+                }
+            } catch (IOException | ExecutionException e) {
+                if (planejado >= inicioMedicao) {
+                    falhas.incrementAndGet();
+                }
+                if (cliente != null) {
+                    cliente.desconectar();
+                    cliente = null;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            planejado += intervaloNs;
+        }
+
+        if (cliente != null) {
+            cliente.desconectar();
+        }
+        if (clienteUdp != null) {
+            clienteUdp.close();
+        }
+    }
+
+    private void imprimirRelatorio() {
+        long respostas = histograma.total();
+        System.out.println("\n" + "=".repeat(60));
+        System.out.printf("Requisições: %,d (OK: %,d | ERRO: %,d | falhas: %,d)%n",
+                respostas, respostasOk.get(), respostasErro.get(), falhas.get());
+        System.out.printf("Vazão: %,.0f req/s%n", (double) respostas / duracaoSegundos);
+        if (!persistente && !udp && tamanhoPool == 0) {
+            // Cada requisição abre e fecha sua conexão: mede a taxa de accept do servidor
+            System.out.printf("Conexões: %,.0f por segundo%n", (double) (respostas + falhas.get()) / duracaoSegundos);
+        }
+        System.out.println("Latência (µs):");
+        System.out.printf("  média: %,10.1f%n", histograma.media() / 1000.0);
+        System.out.printf("  p50:   %,10.1f%n", histograma.percentil(50) / 1000.0);
+        System.out.printf("  p99:   %,10.1f%n", histograma.percentil(99) / 1000.0);
+        System.out.printf("  p99.9: %,10.1f%n", histograma.percentil(99.9) / 1000.0);
+        System.out.printf("  máx:   %,10.1f%n", histograma.maximo() / 1000.0);
+        if (cache != null) {
+            System.out.println("Cache próximo: " + cache.resumo());
+        }
+        System.out.println("=".repeat(60));
+    }
+}
@@ -0,0 +1,117 @@
+package com.ifpb;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latências no estilo do HdrHistogram
+ * Os valores (em nanossegundos) são agrupados em faixas log-lineares: cada
+ * potência de dois é dividida em 64 sub-faixas, o que dá erro relativo de no
+ * máximo ~1,6% em qualquer escala, com memória fixa (~30 KB). O registro é
+ * livre de bloqueios e pode ser feito por várias threads ao mesmo tempo.
+ */
+final class HistogramaLatencia {
+    private static final int BITS_SUB_FAIXA = 6;
+    private static final int SUB_FAIXAS = 1 << BITS_SUB_FAIXA; // 64
+    private static final int TOTAL_FAIXAS = (64 - BITS_SUB_FAIXA) * SUB_FAIXAS + SUB_FAIXAS;
+
+    private final AtomicLongArray contagens = new AtomicLongArray(TOTAL_FAIXAS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong soma = new AtomicLong();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Registra um valor em nanossegundos (valores negativos contam como zero)
+     */
+    void registrar(long valorNs) {
+        long valor = Math.max(0, valorNs);
+        contagens.incrementAndGet(indice(valor));
+        total.incrementAndGet();
+        soma.addAndGet(valor);
+        // Evita escrever no máximo compartilhado quando o valor não o supera
+        if (valor > maximo.get()) {
+            maximo.accumulateAndGet(valor, Math::max);
+        }
+    }
+
+    /**
+     * Soma os registros de outro histograma a este
+     */
+    void combinar(HistogramaLatencia outro) {
+        for (int i = 0; i < TOTAL_FAIXAS; i++) {
+            long contagem = outro.contagens.get(i);
+            if (contagem != 0) {
+                contagens.addAndGet(i, contagem);
+            }
+        }
+        total.addAndGet(outro.total.get());
+        soma.addAndGet(outro.soma.get());
+        maximo.accumulateAndGet(outro.maximo.get(), Math::max);
+    }
+
+    long total() {
+        return total.get();
+    }
+
+    long soma() {
+        return soma.get();
+    }
+
+    long maximo() {
+        return maximo.get();
+    }
+
+    double media() {
+        long n = total.get();
+        return n == 0 ? 0 : (double) soma.get() / n;
+    }
+
+    /**
+     * Menor valor tal que a fração pedida dos registros é menor ou igual a ele
+     * (ex.: percentil(99.9)). O valor é o limite superior da faixa, como no HdrHistogram.
+     */
+    long percentil(double percentual) {
+        long n = total.get();
+        if (n == 0) {
+            return 0;
+        }
+        long alvo = Math.max(1, (long) Math.ceil(n * percentual / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < TOTAL_FAIXAS; i++) {
+            acumulado += contagens.get(i);
+            if (acumulado >= alvo) {
+                return Math.min(limiteSuperior(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    /**
+     * Quantidade de registros cuja faixa termina em até limiteNs (usada para
+     * exportar as faixas cumulativas no formato do Prometheus)
+     */
+    long contagemAte(long limiteNs) {
+        long acumulado = 0;
+        for (int i = 0; i < TOTAL_FAIXAS && limiteSuperior(i) <= limiteNs; i++) {
+            acumulado += contagens.get(i);
+        }
+        return acumulado;
+    }
+
+    private static int indice(long valor) {
+        if (valor < 2 * SUB_FAIXAS) {
+            return (int) valor;
+        }
+        int deslocamento = 63 - Long.numberOfLeadingZeros(valor) - BITS_SUB_FAIXA;
+        return deslocamento * SUB_FAIXAS + (int) (valor >>> deslocamento);
+    }
+
+    private static long limiteSuperior(int indice) {
+        if (indice < 2 * SUB_FAIXAS) {
+            return indice;
+        }
+        int deslocamento = (indice >> BITS_SUB_FAIXA) - 1;
+        long subFaixa = (indice & (SUB_FAIXAS - 1)) + SUB_FAIXAS;
+        return ((subFaixa + 1) << deslocamento) - 1;
+    }
+}
@@ -0,0 +1,238 @@
+package com.ifpb;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Índice invertido para pesquisa textual nas mensagens
+ * Construído uma vez por carga do banco. Cada termo aponta para um int[] com
+ * as mensagens que o contêm (sem Integer nem listas de objetos), e o autor
+ * (texto depois do último " - " da linha) tem um índice próprio para filtros.
+ *
+ * Os termos são normalizados sem acentos e em minúsculas ("Sócrates",
+ * "socrates" e "SÓCRATES" são o mesmo termo), e palavras muito comuns do
+ * português (de, que, não...) ficam de fora.
+ *
+ * As mensagens são numeradas internamente pela ordem de relevância (menos
+ * palavras primeiro, como no BM25 com uma ocorrência por termo; empate pela
+ * linha), e as listas ficam nessa ordem. Assim a interseção das listas encontra
+ * os K melhores resultados primeiro e para logo ali, sem percorrer nem ordenar
+ * todas as mensagens que casam: a latência depende de K, não do tamanho do banco.
+ */
+final class IndicePesquisa {
+    static final int MAXIMO_RESULTADOS = 100;
+
+    private static final int[] VAZIA = new int[0];
+    // Minúscula sem acento dos caracteres latinos (U+0000 a U+024F)
+    private static final char[] DOBRAS = new char[0x250];
+    private static final Set<String> PALAVRAS_IGNORADAS = new HashSet<>(Arrays.asList(
+            "a", "o", "as", "os", "um", "uma", "uns", "umas", "de", "do", "da", "dos", "das",
+            "em", "no", "na", "nos", "nas", "e", "que", "se", "por", "para", "pra", "com",
+            "ao", "aos", "mais", "mas", "ou", "como", "nao", "eu", "me", "te", "lhe", "seu",
+            "sua", "ele", "ela", "isso", "esse", "essa", "este", "esta", "ja", "so"));
+
+    static {
+        for (char c = 0; c < DOBRAS.length; c++) {
+            String decomposto = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            DOBRAS[c] = Character.toLowerCase(decomposto.charAt(0));
+        }
+    }
+
+    private final Map<String, int[]> termos;
+    private final Map<String, int[]> termosAutor;
+    private final int[] numeros; // Posição de relevância -> número da mensagem (1 a M)
+
+    private IndicePesquisa(Map<String, int[]> termos, Map<String, int[]> termosAutor, int[] numeros) {
+        this.termos = termos;
+        this.termosAutor = termosAutor;
+        this.numeros = numeros;
+    }
+
+    /**
+     * Constrói o índice em duas passadas: a primeira conta as palavras de cada
+     * mensagem para definir a ordem de relevância, a segunda monta as listas
+     */
+    static IndicePesquisa construir(BancoMensagens banco) {
+        int total = banco.total();
+        List<String> tokens = new ArrayList<>();
+
+        long[] ordem = new long[total];
+        for (int i = 0; i < total; i++) {
+            tokens.clear();
+            tokenizar(banco.mensagem(i), tokens);
+            ordem[i] = (long) tokens.size() << 32 | i;
+        }
+        Arrays.sort(ordem);
+        int[] posicoes = new int[total];
+        int[] numeros = new int[total];
+        for (int posicao = 0; posicao < total; posicao++) {
+            int indice = (int) ordem[posicao];
+            posicoes[indice] = posicao;
+            numeros[posicao] = indice + 1;
+        }
+
+        Map<String, ListaInt> listas = new HashMap<>();
+        Map<String, ListaInt> listasAutor = new HashMap<>();
+        for (int i = 0; i < total; i++) {
+            String mensagem = banco.mensagem(i);
+            tokens.clear();
+            tokenizar(mensagem, tokens);
+            adicionar(listas, tokens, posicoes[i]);
+
+            String autor = autor(mensagem);
+            if (autor != null) {
+                tokens.clear();
+                tokenizar(autor, tokens);
+                adicionar(listasAutor, tokens, posicoes[i]);
+            }
+        }
+        return new IndicePesquisa(compactar(listas), compactar(listasAutor), numeros);
+    }
+
+    /**
+     * Números das mensagens que contêm todos os termos da consulta e cujo autor
+     * contém todos os termos do filtro (qualquer um pode ser vazio), das mais
+     * relevantes para as menos, até k resultados. Retorna null se nem a
+     * consulta nem o autor têm termos pesquisáveis.
+     */
+    int[] pesquisar(String consulta, String autor, int k) {
+        List<String> tokens = new ArrayList<>();
+        List<int[]> listas = new ArrayList<>();
+        tokenizar(consulta, tokens);
+        for (String termo : tokens) {
+            listas.add(termos.getOrDefault(termo, VAZIA));
+        }
+        tokens.clear();
+        tokenizar(autor, tokens);
+        for (String termo : tokens) {
+            listas.add(termosAutor.getOrDefault(termo, VAZIA));
+        }
+        if (listas.isEmpty()) {
+            return null;
+        }
+        // A menor lista conduz a interseção; as outras só são consultadas por salto
+        listas.sort(Comparator.comparingInt(lista -> lista.length));
+
+        int[] menor = listas.get(0);
+        int[] cursores = new int[listas.size()];
+        int[] resultado = new int[Math.min(k, menor.length)];
+        int encontrados = 0;
+        candidatos:
+        for (int i = 0; i < menor.length && encontrados < resultado.length; i++) {
+            int candidato = menor[i];
+            for (int j = 1; j < listas.size(); j++) {
+                int[] lista = listas.get(j);
+                cursores[j] = avancar(lista, cursores[j], candidato);
+                if (cursores[j] == lista.length) {
+                    break candidatos;
+                }
+                if (lista[cursores[j]] != candidato) {
+                    continue candidatos;
+                }
+            }
+            resultado[encontrados++] = numeros[candidato];
+        }
+        return encontrados == resultado.length ? resultado : Arrays.copyOf(resultado, encontrados);
+    }
+
+    int termos() {
+        return termos.size();
+    }
+
+    /**
+     * Primeira posição a partir de inicio com valor >= alvo, por busca exponencial
+     * seguida de busca binária (listas crescentes)
+     */
+    private static int avancar(int[] lista, int inicio, int alvo) {
+        int passo = 1;
+        int limite = inicio;
+        while (limite < lista.length && lista[limite] < alvo) {
+            inicio = limite + 1;
+            limite += passo;
+            passo <<= 1;
+        }
+        int fim = Math.min(limite, lista.length - 1);
+        while (inicio <= fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (lista[meio] < alvo) {
+                inicio = meio + 1;
+            } else {
+                fim = meio - 1;
+            }
+        }
+        return inicio;
+    }
+
+    /**
+     * Autor da mensagem no formato "texto - Autor", ou null
+     */
+    private static String autor(String mensagem) {
+        int separador = mensagem.lastIndexOf(" - ");
+        return separador < 0 ? null : mensagem.substring(separador + 3);
+    }
+
+    /**
+     * Quebra o texto em termos normalizados, sem as palavras ignoradas
+     */
+    static void tokenizar(String texto, List<String> destino) {
+        if (texto == null) {
+            return;
+        }
+        char[] termo = new char[texto.length()];
+        int tamanho = 0;
+        for (int i = 0; i <= texto.length(); i++) {
+            char c = i < texto.length() ? texto.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                termo[tamanho++] = c < DOBRAS.length ? DOBRAS[c] : Character.toLowerCase(c);
+            } else if (tamanho > 0) {
+                String normalizado = new String(termo, 0, tamanho);
+                if (!PALAVRAS_IGNORADAS.contains(normalizado)) {
+                    destino.add(normalizado);
+                }
+                tamanho = 0;
+            }
+        }
+    }
+
+    /**
+     * Acrescenta a mensagem às listas dos seus termos, uma vez por termo
+     */
+    private static void adicionar(Map<String, ListaInt> listas, List<String> tokens, int posicao) {
+        for (String termo : tokens) {
+            listas.computeIfAbsent(termo, t -> new ListaInt()).adicionar(posicao);
+        }
+    }
+
+    private static Map<String, int[]> compactar(Map<String, ListaInt> listas) {
+        Map<String, int[]> compactas = new HashMap<>(listas.size() * 4 / 3 + 1);
+        for (Map.Entry<String, ListaInt> entrada : listas.entrySet()) {
+            compactas.put(entrada.getKey(), entrada.getValue().ordenada());
+        }
+        return compactas;
+    }
+
+    /**
+     * Lista crescente de int primitivos usada na construção
+     */
+    private static final class ListaInt {
+        private int[] valores = new int[4];
+        private int tamanho = 0;
+
+        void adicionar(int valor) {
+            // Termo repetido na mesma mensagem
+            if (tamanho > 0 && valores[tamanho - 1] == valor) {
+                return;
+            }
+            if (tamanho == valores.length) {
+                valores = Arrays.copyOf(valores, tamanho * 2);
+            }
+            valores[tamanho++] = valor;
+        }
+
+        int[] ordenada() {
+            int[] lista = Arrays.copyOf(valores, tamanho);
+            Arrays.sort(lista);
+            return lista;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.ifpb;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas operacionais do servidor
+ * Os contadores são LongAdder (distribuídos entre células por thread) e o tempo
+ * de serviço é registrado em histogramas livres de bloqueios separados por
+ * faixas de threads, combinados apenas na leitura. Assim o atendimento nunca
+ * disputa a mesma variável com as outras threads nem espera pela exportação.
+ */
+final class Metricas {
+    // Limites das faixas exportadas do histograma, em segundos
+    private static final String[] LIMITES_SEGUNDOS = {
+            "0.00001", "0.000025", "0.00005", "0.0001", "0.00025", "0.0005",
+            "0.001", "0.0025", "0.005", "0.01", "0.025", "0.1", "1"
+    };
+
+    private static final LongAdder conexoesAtivas = new LongAdder();
+    private static final LongAdder conexoesTotal = new LongAdder();
+    private static final LongAdder respostasOk = new LongAdder();
+    private static final LongAdder respostasAleatorias = new LongAdder();
+    private static final LongAdder respostasErro = new LongAdder();
+    private static final LongAdder bytesEscritos = new LongAdder();
+    private static final LongAdder errosDecodificacao = new LongAdder();
+    private static final LongAdder conexoesRecusadas = new LongAdder();
+    private static final LongAdder requisicoesLimitadas = new LongAdder();
+    private static final LongAdder temposEsgotados = new LongAdder();
+    private static final LongAdder pesquisas = new LongAdder();
+    private static final LongAdder pesquisasRecusadas = new LongAdder();
+    private static final LongAdder assinaturasAtivas = new LongAdder();
+    // Exportações por status (Protocolo.EXPORTACAO_*)
+    private static final LongAdder[] exportacoes = {
+            new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()};
+    private static final String[] STATUS_EXPORTACAO = {
+            "dados", "nao_modificado", "faixa_invalida", "limite_taxa", "indisponivel"};
+
+    // Uma faixa por thread (escolhida pelo id), em potência de 2 >= 2x o número de núcleos
+    private static final HistogramaLatencia[] temposServico = criarHistogramas(
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1);
+
+    private Metricas() {
+    }
+
+    static void conexaoAberta() {
+        conexoesTotal.increment();
+        conexoesAtivas.increment();
+    }
+
+    static void conexaoFechada() {
+        conexoesAtivas.decrement();
+    }
+
+    /**
+     * Contabiliza uma resposta: número 0 é aleatória, 1 a total é OK e o resto é ERRO
+     */
+    static void resposta(int numero, int totalMensagens, long tempoServicoNs) {
+        if (numero == 0) {
+            respostasAleatorias.increment();
+        } else if (numero >= 1 && numero <= totalMensagens) {
+            respostasOk.increment();
+        } else {
+            respostasErro.increment();
+        }
+        int faixa = (int) Thread.currentThread().getId() & (temposServico.length - 1);
+        temposServico[faixa].registrar(tempoServicoNs);
+    }
+
+    static void bytesEscritos(long quantidade) {
+        bytesEscritos.add(quantidade);
+    }
+
+    static void erroDecodificacao() {
+        errosDecodificacao.increment();
+    }
+
+    static void conexaoRecusada() {
+        conexoesRecusadas.increment();
+    }
+
+    static void requisicoesLimitadas(int quantidade) {
+        requisicoesLimitadas.add(quantidade);
+    }
+
+    static void tempoEsgotado() {
+        temposEsgotados.increment();
+    }
+
+    static void pesquisa(boolean atendida) {
+        (atendida ? pesquisas : pesquisasRecusadas).increment();
+    }
+
+    static void assinaturaIniciada() {
+        assinaturasAtivas.increment();
+    }
+
+    static void assinaturaEncerrada() {
+        assinaturasAtivas.decrement();
+    }
+
+    static void exportacao(byte status) {
+        exportacoes[status].increment();
+    }
+
+    /**
+     * Envolve a saída do socket contando os bytes que efetivamente chegam a ela
+     * (com um BufferedOutputStream por cima, a contagem acontece uma vez por flush)
+     */
+    static OutputStream contarBytes(OutputStream saida) {
+        return new FilterOutputStream(saida) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytesEscritos.increment();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                bytesEscritos.add(len);
+            }
+        };
+    }
+
+    /**
+     * Exporta as métricas no formato texto do Prometheus
+     */
+    static String exportar() {
+        HistogramaLatencia tempos = new HistogramaLatencia();
+        for (HistogramaLatencia faixa : temposServico) {
+            tempos.combinar(faixa);
+        }
+
+        StringBuilder texto = new StringBuilder(4096);
+        metrica(texto, "mensagens_conexoes_ativas", "gauge",
+                "Conexões abertas no momento", conexoesAtivas.sum());
+        metrica(texto, "mensagens_conexoes_total", "counter",
+                "Conexões aceitas desde o início", conexoesTotal.sum());
+        metrica(texto, "mensagens_conexoes_recusadas_total", "counter",
+                "Conexões recusadas por limite de conexões simultâneas", conexoesRecusadas.sum());
+        metrica(texto, "mensagens_tempo_esgotado_total", "counter",
+                "Conexões fechadas por tempo ocioso, de leitura ou de escrita esgotado", temposEsgotados.sum());
+
+        cabecalho(texto, "mensagens_respostas_total", "counter",
+                "Respostas enviadas por resultado (ok, aleatoria ou erro)");
+        texto.append("mensagens_respostas_total{resultado=\"ok\"} ").append(respostasOk.sum()).append('\n');
+        texto.append("mensagens_respostas_total{resultado=\"aleatoria\"} ").append(respostasAleatorias.sum()).append('\n');
+        texto.append("mensagens_respostas_total{resultado=\"erro\"} ").append(respostasErro.sum()).append('\n');
+
+        metrica(texto, "mensagens_bytes_escritos_total", "counter",
+                "Bytes escritos nos sockets dos clientes", bytesEscritos.sum());
+        metrica(texto, "mensagens_erros_decodificacao_total", "counter",
+                "Comandos desconhecidos e lotes inválidos", errosDecodificacao.sum());
+        metrica(texto, "mensagens_requisicoes_limitadas_total", "counter",
+                "Requisições recusadas pelo limite de taxa por IP", requisicoesLimitadas.sum());
+
+        cabecalho(texto, "mensagens_pesquisas_total", "counter",
+                "Comandos de pesquisa por resultado (atendida ou recusada)");
+        texto.append("mensagens_pesquisas_total{resultado=\"atendida\"} ").append(pesquisas.sum()).append('\n');
+        texto.append("mensagens_pesquisas_total{resultado=\"recusada\"} ").append(pesquisasRecusadas.sum()).append('\n');
+
+        metrica(texto, "mensagens_assinaturas_ativas", "gauge",
+                "Conexões recebendo um fluxo de assinatura", assinaturasAtivas.sum());
+
+        cabecalho(texto, "mensagens_exportacoes_total", "counter",
+                "Comandos de exportação do banco por resultado");
+        for (int i = 0; i < exportacoes.length; i++) {
+            texto.append("mensagens_exportacoes_total{resultado=\"").append(STATUS_EXPORTACAO[i]).append("\"} ")
+                    .append(exportacoes[i].sum()).append('\n');
+        }
+
+        cabecalho(texto, "mensagens_tempo_servico_segundos", "histogram",
+                "Tempo para montar cada resposta a partir da requisição decodificada");
+        for (String limite : LIMITES_SEGUNDOS) {
+            texto.append("mensagens_tempo_servico_segundos_bucket{le=\"").append(limite).append("\"} ")
+                    .append(tempos.contagemAte(Math.round(Double.parseDouble(limite) * 1e9))).append('\n');
+        }
+        texto.append("mensagens_tempo_servico_segundos_bucket{le=\"+Inf\"} ").append(tempos.total()).append('\n');
+        texto.append("mensagens_tempo_servico_segundos_sum ")
+                .append(String.format(Locale.ROOT, "%.9f", tempos.soma() / 1e9)).append('\n');
+        texto.append("mensagens_tempo_servico_segundos_count ").append(tempos.total()).append('\n');
+
+        long[] chamadas = chamadasSistema();
+        if (chamadas != null) {
+            cabecalho(texto, "mensagens_chamadas_sistema_total", "counter",
+                    "Chamadas de sistema read e write do processo (sockets, arquivos e console)");
+            texto.append("mensagens_chamadas_sistema_total{tipo=\"leitura\"} ").append(chamadas[0]).append('\n');
+            texto.append("mensagens_chamadas_sistema_total{tipo=\"escrita\"} ").append(chamadas[1]).append('\n');
+        }
+
+        metrica(texto, "mensagens_banco_versao", "gauge",
+                "Versão do snapshot do banco em uso", ServidorMensagens.versaoBanco());
+        metrica(texto, "mensagens_log_descartados_total", "counter",
+                "Eventos de log descartados por buffer cheio", RegistroEventos.descartados());
+        return texto.toString();
+    }
+
+    /**
+     * Contadores syscr e syscw de /proc/self/io, ou null fora do Linux
+     * Divididos pelas respostas, dão as chamadas de sistema por requisição.
+     */
+    private static long[] chamadasSistema() {
+        try {
+            long[] chamadas = new long[2];
+            for (String linha : Files.readAllLines(Path.of("/proc/self/io"))) {
+                if (linha.startsWith("syscr:")) {
+                    chamadas[0] = Long.parseLong(linha.substring(6).trim());
+                } else if (linha.startsWith("syscw:")) {
+                    chamadas[1] = Long.parseLong(linha.substring(6).trim());
+                }
+            }
+            return chamadas;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void metrica(StringBuilder texto, String nome, String tipo, String ajuda, long valor) {
+        cabecalho(texto, nome, tipo, ajuda);
+        texto.append(nome).append(' ').append(valor).append('\n');
+    }
+
+    private static void cabecalho(StringBuilder texto, String nome, String tipo, String ajuda) {
+        texto.append("# HELP ").append(nome).append(' ').append(ajuda).append('\n');
+        texto.append("# TYPE ").append(nome).append(' ').append(tipo).append('\n');
+    }
+
+    private static HistogramaLatencia[] criarHistogramas(int quantidade) {
+        HistogramaLatencia[] histogramas = new HistogramaLatencia[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            histogramas[i] = new HistogramaLatencia();
+        }
+        return histogramas;
+    }
+}
@@ -0,0 +1,70 @@
+package com.ifpb;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monitor do arquivo de mensagens
+ * Observa o diretório do arquivo com WatchService e, quando ele é alterado,
+ * pede ao servidor que construa um novo snapshot em segundo plano.
+ */
+class MonitorArquivo implements Runnable {
+    private static final long ESPERA_ESTABILIZAR_MS = 300; // Agrupa eventos de uma mesma gravação
+
+    private final Path arquivo;
+    private final Runnable aoAlterar;
+
+    MonitorArquivo(String nomeArquivo, Runnable aoAlterar) {
+        this.arquivo = Paths.get(nomeArquivo).toAbsolutePath();
+        this.aoAlterar = aoAlterar;
+    }
+
+    /**
+     * Inicia o monitoramento em uma thread daemon
+     */
+    void iniciar() {
+        Thread thread = new Thread(this, "monitor-mensagens");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            arquivo.getParent().register(watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+            while (true) {
+                WatchKey chave = watcher.take();
+                boolean alterado = coletarEventos(chave);
+
+                // Espera a gravação terminar, descartando eventos repetidos
+                WatchKey proxima;
+                while ((proxima = watcher.poll(ESPERA_ESTABILIZAR_MS, TimeUnit.MILLISECONDS)) != null) {
+                    alterado |= coletarEventos(proxima);
+                }
+
+                if (alterado) {
+                    aoAlterar.run();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao monitorar " + arquivo + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean coletarEventos(WatchKey chave) {
+        boolean alterado = false;
+        for (WatchEvent<?> evento : chave.pollEvents()) {
+            Object contexto = evento.context();
+            if (contexto instanceof Path && arquivo.getFileName().equals(contexto)) {
+                alterado = true;
+            }
+        }
+        chave.reset();
+        return alterado;
+    }
+}
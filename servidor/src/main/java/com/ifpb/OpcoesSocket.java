@@ -0,0 +1,85 @@
+package com.ifpb;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.NetworkChannel;
+
+/**
+ * Opções de socket configuráveis (ver Configuracao), aplicadas da mesma forma
+ * no servidor bloqueante, no NIO e nos clientes
+ *   socket.tcp_nodelay  desliga o algoritmo de Nagle (padrão true: as respostas
+ *                       já são agrupadas antes do flush, Nagle só atrasaria a última)
+ *   socket.sndbuf       SO_SNDBUF em bytes (0: padrão do sistema)
+ *   socket.rcvbuf       SO_RCVBUF em bytes (0: padrão do sistema); também vai no
+ *                       socket de escuta, antes do bind, para valer na negociação
+ *                       da janela TCP das conexões aceitas
+ *   socket.keepalive    SO_KEEPALIVE, para detectar clientes que sumiram sem FIN
+ */
+final class OpcoesSocket {
+    static final boolean TCP_NODELAY = Configuracao.booleano("socket.tcp_nodelay");
+    static final int SNDBUF = Configuracao.inteiro("socket.sndbuf");
+    static final int RCVBUF = Configuracao.inteiro("socket.rcvbuf");
+    static final boolean KEEPALIVE = Configuracao.booleano("socket.keepalive");
+
+    private OpcoesSocket() {
+    }
+
+    /**
+     * Socket de escuta, antes do bind
+     */
+    static void configurarEscuta(ServerSocket socket) throws IOException {
+        if (RCVBUF > 0) {
+            socket.setReceiveBufferSize(RCVBUF);
+        }
+    }
+
+    static void configurarEscuta(NetworkChannel canal) throws IOException {
+        if (RCVBUF > 0) {
+            canal.setOption(StandardSocketOptions.SO_RCVBUF, RCVBUF);
+        }
+    }
+
+    /**
+     * Conexão aceita pelo servidor ou aberta por um cliente
+     */
+    static void configurar(Socket socket) throws IOException {
+        socket.setTcpNoDelay(TCP_NODELAY);
+        socket.setKeepAlive(KEEPALIVE);
+        if (SNDBUF > 0) {
+            socket.setSendBufferSize(SNDBUF);
+        }
+        if (RCVBUF > 0) {
+            socket.setReceiveBufferSize(RCVBUF);
+        }
+    }
+
+    static void configurar(NetworkChannel canal) throws IOException {
+        canal.setOption(StandardSocketOptions.TCP_NODELAY, TCP_NODELAY);
+        canal.setOption(StandardSocketOptions.SO_KEEPALIVE, KEEPALIVE);
+        if (SNDBUF > 0) {
+            canal.setOption(StandardSocketOptions.SO_SNDBUF, SNDBUF);
+        }
+        if (RCVBUF > 0) {
+            canal.setOption(StandardSocketOptions.SO_RCVBUF, RCVBUF);
+        }
+    }
+
+    /**
+     * Descrição para o console, ex.: "TCP_NODELAY, SO_RCVBUF=262144"
+     */
+    static String descrever() {
+        StringBuilder texto = new StringBuilder(TCP_NODELAY ? "TCP_NODELAY" : "Nagle");
+        if (KEEPALIVE) {
+            texto.append(", SO_KEEPALIVE");
+        }
+        if (SNDBUF > 0) {
+            texto.append(", SO_SNDBUF=").append(SNDBUF);
+        }
+        if (RCVBUF > 0) {
+            texto.append(", SO_RCVBUF=").append(RCVBUF);
+        }
+        return texto.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package com.ifpb;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Abre um ou mais sockets de escuta na mesma porta
+ * Com SO_REUSEPORT (Linux, BSDs), cada aceitador tem seu próprio socket e o
+ * kernel distribui as novas conexões entre eles, sem disputa por uma única
+ * fila de accept. A mesma opção permite rodar várias instâncias do servidor
+ * na mesma porta (reuseport=true em cada uma). Sem suporte na plataforma,
+ * um único socket é aberto e os aceitadores o compartilham.
+ */
+final class PortaCompartilhada {
+    // SO_REUSEPORT mesmo com um só aceitador, para dividir a porta com outras instâncias
+    private static final boolean REUSEPORT = Configuracao.booleano("reuseport");
+
+    private PortaCompartilhada() {
+    }
+
+    /**
+     * Sockets de escuta para o modo bloqueante (um por aceitador, se possível)
+     * Abertos a partir de canais, para que os sockets aceitos tenham getChannel()
+     * e a exportação possa usar transferTo
+     */
+    static List<ServerSocket> abrirSockets(int porta, int aceitadores) throws IOException {
+        List<ServerSocket> sockets = new ArrayList<>();
+        boolean compartilhar = (aceitadores > 1 || REUSEPORT) && suportado();
+        int quantidade = compartilhar ? aceitadores : 1;
+        for (int i = 0; i < quantidade; i++) {
+            ServerSocket socket = ServerSocketChannel.open().socket();
+            if (compartilhar) {
+                socket.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            OpcoesSocket.configurarEscuta(socket);
+            socket.bind(new InetSocketAddress(porta), ControleAdmissao.BACKLOG);
+            sockets.add(socket);
+        }
+        return sockets;
+    }
+
+    /**
+     * Canais de escuta para o modo NIO (um por aceitador, se possível)
+     */
+    static List<ServerSocketChannel> abrirCanais(int porta, int aceitadores) throws IOException {
+        List<ServerSocketChannel> canais = new ArrayList<>();
+        boolean compartilhar = (aceitadores > 1 || REUSEPORT) && suportado();
+        int quantidade = compartilhar ? aceitadores : 1;
+        for (int i = 0; i < quantidade; i++) {
+            ServerSocketChannel canal = ServerSocketChannel.open();
+            if (compartilhar) {
+                canal.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            OpcoesSocket.configurarEscuta(canal);
+            canal.bind(new InetSocketAddress(porta), ControleAdmissao.BACKLOG);
+            canais.add(canal);
+        }
+        return canais;
+    }
+
+    /**
+     * Descrição para o console, ex.: "4 (SO_REUSEPORT, 4 sockets)"
+     */
+    static String descrever(int aceitadores, int sockets) {
+        if (sockets > 1 || REUSEPORT && suportado()) {
+            return aceitadores + " (SO_REUSEPORT, " + sockets + (sockets == 1 ? " socket)" : " sockets)");
+        }
+        return aceitadores + (aceitadores > 1 ? " (socket compartilhado, sem SO_REUSEPORT)" : "");
+    }
+
+    static boolean suportado() {
+        try (ServerSocketChannel teste = ServerSocketChannel.open()) {
+            return teste.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
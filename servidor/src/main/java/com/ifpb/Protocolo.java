@@ -0,0 +1,297 @@
+package com.ifpb;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constantes e codificação do protocolo do Serviço de Mensagens
+ *
+ * Requisição simples (original):
+ *   [numeroMensagem:int][persistente:boolean]
+ *
+ * Comandos estendidos começam com um número reservado (MARCADOR_COMANDO), que
+ * servidores antigos tratam como número inválido:
+ *   [MARCADOR_COMANDO:int][opcode:byte][versao:byte][corpo do comando]
+ *
+ * Lote (COMANDO_LOTE, versão 1):
+ *   requisição: [quantidade:int][numeros:int x quantidade][persistente:boolean]
+ *   resposta:   [quantidade:int][quadro de resposta x quantidade], com um único flush
+ *
+ * Negociação (COMANDO_NEGOCIAR, versão 1):
+ *   requisição: [versaoDesejada:byte]
+ *   resposta:   [versaoAceita:byte], que passa a valer para as respostas seguintes
+ *
+ * Exportação (COMANDO_EXPORTAR, versão 1):
+ *   requisição: [inicio:int][quantidade:int][checksumConhecido:long][persistente:boolean]
+ *               inicio a partir de 1; quantidade 0 vai até o fim; checksum -1 se não há cópia
+ *   resposta:   [status:byte][versaoBanco:long][checksum:long][total:int][inicio:int]
+ *               [quantidade:int][tamanho:long] seguido de tamanho bytes com
+ *               [tamanho:varint][texto UTF-8] por mensagem, independente da versão negociada.
+ *               Se o checksum do banco é o conhecido, o status é NAO_MODIFICADO e não há corpo.
+ *
+ * Pesquisa (COMANDO_PESQUISAR, versão 1):
+ *   requisição: [k:int][consulta:texto][autor:texto][persistente:boolean], com
+ *               texto = [tamanho:unsigned short][UTF-8] de até MAXIMO_TEXTO_PESQUISA bytes
+ *   resposta:   [quantidade:int] seguido de [numero:int][quadro de resposta] x quantidade,
+ *               das mensagens mais relevantes para as menos; quantidade -1 indica
+ *               erro e é seguida de um único quadro de erro
+ *
+ * Estado do nó (COMANDO_ESTADO, versão 1), usado pelos clientes com vários nós:
+ *   requisição: [persistente:boolean]
+ *   resposta:   [versaoBanco:long][checksum:long][total:int][carregadoEm:long],
+ *               independente da versão negociada e fora do limite de taxa
+ *
+ * Assinatura (COMANDO_ASSINAR, versão 1), um fluxo de mensagens enviado pelo servidor:
+ *   requisição: [modo:byte][inicio:int][taxa:int][creditos:int], com modo ASSINATURA_ALEATORIA
+ *               ou ASSINATURA_SEQUENCIAL (a partir de inicio, 1 a M), taxa em mensagens
+ *               por segundo (0 = sem limite) e creditos iniciais (mensagens autorizadas)
+ *   fluxo:      [numero:int][quadro de resposta] por mensagem, uma por crédito; o
+ *               cliente concede mais créditos enviando [creditos:int] (> 0) a qualquer momento
+ *   fim:        [FIM_ASSINATURA:int][quadro], "OK|..." ao fim do banco na sequencial ou
+ *               "ERRO|motivo"; em seguida o servidor encerra a saída, e o cliente fecha a conexão
+ *   A conexão fica dedicada ao fluxo até um dos lados fechá-la (ver DistribuidorAssinaturas).
+ *
+ * Consultas por UDP (ServidorUdp), um datagrama em cada sentido, sem negociação:
+ *   requisição: [id:int][numeroMensagem:int]
+ *   resposta:   [id:int][quadro de resposta v2], com o id da requisição
+ *
+ * Se o servidor está lotado, a conexão recebe um quadro v1 de erro logo após o
+ * accept e é fechada. Requisições acima do limite de taxa do IP recebem um
+ * quadro de erro no lugar da resposta, e a conexão continua aberta.
+ *
+ * Quadros de resposta:
+ *   v1: writeUTF de "OK|mensagem" ou "ERRO|motivo" com exatamente 150 caracteres
+ *   v2: [status:byte][tamanho:varint][texto UTF-8], sem preenchimento nem truncamento
+ */
+final class Protocolo {
+    static final int MARCADOR_COMANDO = Integer.MIN_VALUE;
+    static final int TAMANHO_REQUISICAO = 5; // [numeroMensagem:int][persistente:boolean]
+    static final int TAMANHO_CABECALHO_COMANDO = 6; // [marcador:int][opcode:byte][versao:byte]
+
+    static final byte COMANDO_LOTE = 1;
+    static final byte VERSAO_LOTE = 1;
+    static final int MAXIMO_LOTE = 10_000;
+
+    static final byte COMANDO_NEGOCIAR = 2;
+    static final byte VERSAO_NEGOCIAR = 1;
+
+    static final byte COMANDO_EXPORTAR = 3;
+    static final byte VERSAO_EXPORTAR = 1;
+    static final int TAMANHO_CORPO_EXPORTAR = 17; // [inicio:int][quantidade:int][checksum:long][persistente:boolean]
+    static final int TAMANHO_CABECALHO_EXPORTACAO = 37;
+    static final long SEM_CHECKSUM = -1; // CRC32C ocupa só 32 bits, então -1 nunca é um checksum
+
+    static final byte EXPORTACAO_DADOS = 0;
+    static final byte EXPORTACAO_NAO_MODIFICADO = 1;
+    static final byte EXPORTACAO_FAIXA_INVALIDA = 2;
+    static final byte EXPORTACAO_LIMITE_TAXA = 3;
+    static final byte EXPORTACAO_INDISPONIVEL = 4;
+
+    static final byte COMANDO_PESQUISAR = 4;
+    static final byte VERSAO_PESQUISAR = 1;
+    static final int MAXIMO_TEXTO_PESQUISA = 200;
+    static final int PESQUISA_ERRO = -1;
+
+    static final byte COMANDO_ESTADO = 5;
+    static final byte VERSAO_ESTADO = 1;
+    static final int TAMANHO_RESPOSTA_ESTADO = 28;
+
+    static final byte COMANDO_ASSINAR = 6;
+    static final byte VERSAO_ASSINAR = 1;
+    static final int TAMANHO_CORPO_ASSINAR = 13; // [modo:byte][inicio:int][taxa:int][creditos:int]
+    static final byte ASSINATURA_ALEATORIA = 0;
+    static final byte ASSINATURA_SEQUENCIAL = 1;
+    static final int FIM_ASSINATURA = -1;
+
+    static final int TAMANHO_REQUISICAO_UDP = 8; // [id:int][numeroMensagem:int]
+    static final int MAXIMO_DATAGRAMA = 65507; // Maior carga útil de um datagrama UDP sobre IPv4
+
+    static final int PROTOCOLO_V1 = 1;
+    static final int PROTOCOLO_V2 = 2;
+    static final int PROTOCOLO_MAIS_RECENTE = PROTOCOLO_V2;
+
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_ERRO = 1;
+
+    private static final String MOTIVO_COMANDO_INVALIDO = "ERRO|Comando ou versão de protocolo desconhecidos";
+    private static final String MOTIVO_LOTE_INVALIDO = "ERRO|Lote inválido! Use de 1 a " + MAXIMO_LOTE + " mensagens";
+    private static final String MOTIVO_SERVIDOR_LOTADO = "ERRO|Servidor lotado, tente novamente mais tarde";
+    private static final String MOTIVO_LIMITE_TAXA = "ERRO|Limite de requisições por segundo excedido";
+    private static final String MOTIVO_PESQUISA_INVALIDA = "ERRO|Pesquisa inválida! Use de 1 a " +
+            IndicePesquisa.MAXIMO_RESULTADOS + " resultados e textos de até " + MAXIMO_TEXTO_PESQUISA + " bytes";
+    private static final String MOTIVO_PESQUISA_VAZIA = "ERRO|Consulta sem termos pesquisáveis";
+    private static final String MOTIVO_PESQUISA_DESATIVADA = "ERRO|Pesquisa desativada no servidor";
+    private static final String MOTIVO_ASSINATURA_INVALIDA = "ERRO|Assinatura inválida! Use modo 0 (aleatórias) " +
+            "ou 1 (sequencial, início de 1 a M), taxa e créditos não negativos";
+    private static final String MOTIVO_FIM_BANCO = "OK|Fim do banco";
+
+    // Quadros de erro para comandos estendidos desconhecidos ou lotes fora de 1 a MAXIMO_LOTE
+    private static final byte[] QUADRO_COMANDO_INVALIDO = ServidorMensagens.codificarResposta(MOTIVO_COMANDO_INVALIDO);
+    private static final byte[] QUADRO_LOTE_INVALIDO = ServidorMensagens.codificarResposta(MOTIVO_LOTE_INVALIDO);
+    private static final byte[] QUADRO_COMANDO_INVALIDO_V2 = codificarRespostaV2(MOTIVO_COMANDO_INVALIDO);
+    private static final byte[] QUADRO_LOTE_INVALIDO_V2 = codificarRespostaV2(MOTIVO_LOTE_INVALIDO);
+    // Enviado no accept, antes de qualquer negociação, por isso só existe em v1
+    private static final byte[] QUADRO_SERVIDOR_LOTADO = ServidorMensagens.codificarResposta(MOTIVO_SERVIDOR_LOTADO);
+    private static final byte[] QUADRO_LIMITE_TAXA = ServidorMensagens.codificarResposta(MOTIVO_LIMITE_TAXA);
+    private static final byte[] QUADRO_LIMITE_TAXA_V2 = codificarRespostaV2(MOTIVO_LIMITE_TAXA);
+    private static final byte[] QUADRO_PESQUISA_INVALIDA = ServidorMensagens.codificarResposta(MOTIVO_PESQUISA_INVALIDA);
+    private static final byte[] QUADRO_PESQUISA_INVALIDA_V2 = codificarRespostaV2(MOTIVO_PESQUISA_INVALIDA);
+    private static final byte[] QUADRO_PESQUISA_VAZIA = ServidorMensagens.codificarResposta(MOTIVO_PESQUISA_VAZIA);
+    private static final byte[] QUADRO_PESQUISA_VAZIA_V2 = codificarRespostaV2(MOTIVO_PESQUISA_VAZIA);
+    private static final byte[] QUADRO_PESQUISA_DESATIVADA = ServidorMensagens.codificarResposta(MOTIVO_PESQUISA_DESATIVADA);
+    private static final byte[] QUADRO_PESQUISA_DESATIVADA_V2 = codificarRespostaV2(MOTIVO_PESQUISA_DESATIVADA);
+    private static final byte[] QUADRO_ASSINATURA_INVALIDA = ServidorMensagens.codificarResposta(MOTIVO_ASSINATURA_INVALIDA);
+    private static final byte[] QUADRO_ASSINATURA_INVALIDA_V2 = codificarRespostaV2(MOTIVO_ASSINATURA_INVALIDA);
+    private static final byte[] QUADRO_FIM_BANCO = ServidorMensagens.codificarResposta(MOTIVO_FIM_BANCO);
+    private static final byte[] QUADRO_FIM_BANCO_V2 = codificarRespostaV2(MOTIVO_FIM_BANCO);
+
+    private Protocolo() {
+    }
+
+    static byte[] quadroComandoInvalido(int versao) {
+        return versao == PROTOCOLO_V2 ? QUADRO_COMANDO_INVALIDO_V2 : QUADRO_COMANDO_INVALIDO;
+    }
+
+    static byte[] quadroLoteInvalido(int versao) {
+        return versao == PROTOCOLO_V2 ? QUADRO_LOTE_INVALIDO_V2 : QUADRO_LOTE_INVALIDO;
+    }
+
+    static byte[] quadroServidorLotado() {
+        return QUADRO_SERVIDOR_LOTADO;
+    }
+
+    static byte[] quadroLimiteTaxa(int versao) {
+        return versao == PROTOCOLO_V2 ? QUADRO_LIMITE_TAXA_V2 : QUADRO_LIMITE_TAXA;
+    }
+
+    static byte[] quadroPesquisaInvalida(int versao) {
+        return versao == PROTOCOLO_V2 ? QUADRO_PESQUISA_INVALIDA_V2 : QUADRO_PESQUISA_INVALIDA;
+    }
+
+    static byte[] quadroPesquisaVazia(int versao) {
+        return versao == PROTOCOLO_V2 ? QUADRO_PESQUISA_VAZIA_V2 : QUADRO_PESQUISA_VAZIA;
+    }
+
+    static byte[] quadroPesquisaDesativada(int versao) {
+        return versao == PROTOCOLO_V2 ? QUADRO_PESQUISA_DESATIVADA_V2 : QUADRO_PESQUISA_DESATIVADA;
+    }
+
+    static byte[] quadroAssinaturaInvalida(int versao) {
+        return versao == PROTOCOLO_V2 ? QUADRO_ASSINATURA_INVALIDA_V2 : QUADRO_ASSINATURA_INVALIDA;
+    }
+
+    static byte[] quadroFimBanco(int versao) {
+        return versao == PROTOCOLO_V2 ? QUADRO_FIM_BANCO_V2 : QUADRO_FIM_BANCO;
+    }
+
+    static boolean textoPesquisaValido(String texto) {
+        return texto.getBytes(StandardCharsets.UTF_8).length <= MAXIMO_TEXTO_PESQUISA;
+    }
+
+    /**
+     * Escreve um texto da pesquisa: [tamanho:unsigned short][UTF-8]
+     */
+    static void escreverTexto(DataOutputStream saida, String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAXIMO_TEXTO_PESQUISA) {
+            throw new IllegalArgumentException("Texto de pesquisa com mais de " + MAXIMO_TEXTO_PESQUISA + " bytes");
+        }
+        saida.writeShort(bytes.length);
+        saida.write(bytes);
+    }
+
+    /**
+     * Cabeçalho da resposta de exportação, que precede o corpo enviado do arquivo
+     */
+    static byte[] cabecalhoExportacao(byte status, long versaoBanco, long checksum, int total,
+                                      int inicio, int quantidade, long tamanho) {
+        return ByteBuffer.allocate(TAMANHO_CABECALHO_EXPORTACAO)
+                .put(status)
+                .putLong(versaoBanco)
+                .putLong(checksum)
+                .putInt(total)
+                .putInt(inicio)
+                .putInt(quantidade)
+                .putLong(tamanho)
+                .array();
+    }
+
+    /**
+     * Resposta do comando ESTADO com a identificação do snapshot em uso
+     */
+    static byte[] respostaEstado(long versaoBanco, long checksum, int total, long carregadoEm) {
+        return ByteBuffer.allocate(TAMANHO_RESPOSTA_ESTADO)
+                .putLong(versaoBanco)
+                .putLong(checksum)
+                .putInt(total)
+                .putLong(carregadoEm)
+                .array();
+    }
+
+    /**
+     * Versão que o servidor aceita para um pedido de negociação
+     */
+    static int versaoAceita(int versaoDesejada) {
+        return Math.max(PROTOCOLO_V1, Math.min(versaoDesejada, PROTOCOLO_MAIS_RECENTE));
+    }
+
+    /**
+     * Codifica "OK|mensagem" ou "ERRO|motivo" no quadro v2:
+     * [status:byte][tamanho:varint][texto UTF-8]
+     */
+    static byte[] codificarRespostaV2(String resposta) {
+        int separador = resposta.indexOf('|');
+        byte status = resposta.startsWith("OK|") ? STATUS_OK : STATUS_ERRO;
+        byte[] texto = resposta.substring(separador + 1).getBytes(StandardCharsets.UTF_8);
+
+        byte[] quadro = new byte[1 + tamanhoVarint(texto.length) + texto.length];
+        quadro[0] = status;
+        int posicao = escreverVarint(quadro, 1, texto.length);
+        System.arraycopy(texto, 0, quadro, posicao, texto.length);
+        return quadro;
+    }
+
+    /**
+     * Lê um quadro v2 e o devolve no formato textual "OK|mensagem" ou "ERRO|motivo"
+     */
+    static String lerRespostaV2(DataInputStream entrada) throws IOException {
+        byte status = entrada.readByte();
+        byte[] texto = new byte[lerVarint(entrada)];
+        entrada.readFully(texto);
+        return (status == STATUS_OK ? "OK|" : "ERRO|") + new String(texto, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Número de bytes do varint (7 bits por byte, menos significativos primeiro)
+     */
+    static int tamanhoVarint(int valor) {
+        int bytes = 1;
+        while ((valor & ~0x7F) != 0) {
+            valor >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    static int escreverVarint(byte[] destino, int posicao, int valor) {
+        while ((valor & ~0x7F) != 0) {
+            destino[posicao++] = (byte) ((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        destino[posicao++] = (byte) valor;
+        return posicao;
+    }
+
+    static int lerVarint(DataInput entrada) throws IOException {
+        int valor = 0;
+        for (int deslocamento = 0; deslocamento < 32; deslocamento += 7) {
+            byte b = entrada.readByte();
+            valor |= (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new IOException("Varint malformado");
+    }
+}
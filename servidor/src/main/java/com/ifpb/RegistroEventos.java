@@ -0,0 +1,334 @@
+package com.ifpb;
+
+import java.io.PrintStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registro assíncrono dos eventos do servidor
+ * As threads de atendimento apenas gravam os campos do evento (tipo, endereço
+ * e números) em uma posição de um buffer circular pré-alocado, sem bloqueios
+ * nem concatenação de Strings. Uma única thread de escrita esvazia o buffer em
+ * lotes, formata as linhas e as escreve no console de uma só vez. Se o buffer
+ * estiver cheio, o evento é descartado e contado, sem bloquear o atendimento.
+ *
+ * Configuração (ver Configuracao):
+ *   log.nivel       desligado | erro | conexao | requisicao (padrão)
+ *   log.amostragem  registra 1 a cada N requisições (padrão 1)
+ *   log.capacidade  posições do buffer, arredondado para potência de 2 (padrão 65536)
+ */
+final class RegistroEventos {
+    static final int NIVEL_DESLIGADO = 0;
+    static final int NIVEL_ERRO = 1;
+    static final int NIVEL_CONEXAO = 2;
+    static final int NIVEL_REQUISICAO = 3;
+
+    private static final int NOVO_CLIENTE = 1;
+    private static final int REQUISICAO = 2;
+    private static final int LOTE = 3;
+    private static final int PROTOCOLO_NEGOCIADO = 4;
+    private static final int CONEXAO_ENCERRADA = 5;
+    private static final int CLIENTE_DESCONECTOU = 6;
+    private static final int COMANDO_DESCONHECIDO = 7;
+    private static final int LOTE_INVALIDO = 8;
+    private static final int ERRO = 9;
+    private static final int CONEXAO_RECUSADA = 10;
+    private static final int TEMPO_ESGOTADO = 11;
+    private static final int EXPORTACAO = 12;
+    private static final int PESQUISA = 13;
+    private static final int ASSINATURA = 14;
+
+    private static final int MAXIMO_POR_LOTE = 1024;
+    private static final long ESPERA_SEM_EVENTOS_NS = 1_000_000; // 1 ms
+
+    private static final int nivel = lerNivel(Configuracao.texto("log.nivel"));
+    private static final int amostragem = Math.max(1, Configuracao.inteiro("log.amostragem"));
+
+    // Buffer circular de múltiplos produtores e um consumidor: cada posição tem
+    // uma sequência que indica se está livre para o produtor da volta atual
+    // (sequência == posição) ou publicada para o consumidor (posição + 1)
+    private static final int capacidade = Integer.highestOneBit(
+            Math.max(2, Configuracao.inteiro("log.capacidade") * 2 - 1));
+    private static final int mascara = capacidade - 1;
+    private static final AtomicLongArray sequencias = new AtomicLongArray(capacidade);
+    private static final int[] tipos = new int[capacidade];
+    private static final String[] enderecos = new String[capacidade];
+    private static final String[] textos = new String[capacidade];
+    private static final long[] valoresA = new long[capacidade];
+    private static final long[] valoresB = new long[capacidade];
+    private static final AtomicLong cauda = new AtomicLong();
+    private static long cabeca = 0; // Protegida pelo monitor de esvaziar()
+
+    private static final LongAdder descartados = new LongAdder();
+
+    // Estado da thread de escrita
+    private static final StringBuilder linhasSaida = new StringBuilder(64 * 1024);
+    private static final StringBuilder linhasErro = new StringBuilder(4 * 1024);
+    private static long descartadosInformados = 0;
+
+    static {
+        for (int i = 0; i < capacidade; i++) {
+            sequencias.set(i, i);
+        }
+        if (nivel > NIVEL_DESLIGADO) {
+            Thread escritor = new Thread(RegistroEventos::escreverContinuamente, "registro-eventos");
+            escritor.setDaemon(true);
+            escritor.start();
+            // Esvazia o que restar no buffer ao encerrar o processo
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                while (esvaziar() > 0) {
+                    // Continua até não restar eventos publicados
+                }
+            }));
+        }
+    }
+
+    private RegistroEventos() {
+    }
+
+    static void novoCliente(String endereco) {
+        publicar(NIVEL_CONEXAO, NOVO_CLIENTE, endereco, null, 0, 0);
+    }
+
+    static void requisicao(String endereco, int numeroMensagem, boolean persistente) {
+        if (nivel >= NIVEL_REQUISICAO && amostrar()) {
+            publicar(NIVEL_REQUISICAO, REQUISICAO, endereco, null, numeroMensagem, persistente ? 1 : 0);
+        }
+    }
+
+    static void lote(String endereco, int quantidade, boolean persistente) {
+        if (nivel >= NIVEL_REQUISICAO && amostrar()) {
+            publicar(NIVEL_REQUISICAO, LOTE, endereco, null, quantidade, persistente ? 1 : 0);
+        }
+    }
+
+    static void exportacao(String endereco, int inicio, int quantidade) {
+        if (nivel >= NIVEL_REQUISICAO && amostrar()) {
+            publicar(NIVEL_REQUISICAO, EXPORTACAO, endereco, null, inicio, quantidade);
+        }
+    }
+
+    static void pesquisa(String endereco, String consulta, String autor, int resultados) {
+        if (nivel >= NIVEL_REQUISICAO && amostrar()) {
+            String texto = autor.isEmpty() ? consulta : consulta + "\" autor \"" + autor;
+            publicar(NIVEL_REQUISICAO, PESQUISA, endereco, texto, resultados, 0);
+        }
+    }
+
+    /**
+     * Início de um fluxo: inicio 0 para aleatórias, taxa 0 para sem limite
+     */
+    static void assinatura(String endereco, int inicio, int taxa) {
+        publicar(NIVEL_CONEXAO, ASSINATURA, endereco, null, inicio, taxa);
+    }
+
+    static void protocoloNegociado(String endereco, int versao) {
+        publicar(NIVEL_CONEXAO, PROTOCOLO_NEGOCIADO, endereco, null, versao, 0);
+    }
+
+    static void conexaoEncerrada(String endereco) {
+        publicar(NIVEL_CONEXAO, CONEXAO_ENCERRADA, endereco, null, 0, 0);
+    }
+
+    static void clienteDesconectou(String endereco) {
+        publicar(NIVEL_CONEXAO, CLIENTE_DESCONECTOU, endereco, null, 0, 0);
+    }
+
+    static void conexaoRecusada(String endereco) {
+        publicar(NIVEL_CONEXAO, CONEXAO_RECUSADA, endereco, null, 0, 0);
+    }
+
+    static void tempoEsgotado(String endereco) {
+        publicar(NIVEL_CONEXAO, TEMPO_ESGOTADO, endereco, null, 0, 0);
+    }
+
+    static void comandoDesconhecido(String endereco, int opcode, int versao) {
+        publicar(NIVEL_ERRO, COMANDO_DESCONHECIDO, endereco, null, opcode, versao);
+    }
+
+    static void loteInvalido(String endereco, int quantidade) {
+        publicar(NIVEL_ERRO, LOTE_INVALIDO, endereco, null, quantidade, 0);
+    }
+
+    static void erro(String endereco, String mensagem) {
+        publicar(NIVEL_ERRO, ERRO, endereco, mensagem, 0, 0);
+    }
+
+    /**
+     * Total de eventos descartados por buffer cheio
+     */
+    static long descartados() {
+        return descartados.sum();
+    }
+
+    private static boolean amostrar() {
+        return amostragem == 1 || ThreadLocalRandom.current().nextInt(amostragem) == 0;
+    }
+
+    /**
+     * Reserva uma posição livre, grava os campos e a publica para o escritor
+     */
+    private static void publicar(int nivelEvento, int tipo, String endereco, String texto, long a, long b) {
+        if (nivel < nivelEvento) {
+            return;
+        }
+
+        long posicao = cauda.get();
+        while (true) {
+            int indice = (int) (posicao & mascara);
+            long diferenca = sequencias.get(indice) - posicao;
+
+            if (diferenca == 0) {
+                if (cauda.compareAndSet(posicao, posicao + 1)) {
+                    tipos[indice] = tipo;
+                    enderecos[indice] = endereco;
+                    textos[indice] = texto;
+                    valoresA[indice] = a;
+                    valoresB[indice] = b;
+                    sequencias.lazySet(indice, posicao + 1);
+                    return;
+                }
+                posicao = cauda.get();
+            } else if (diferenca < 0) {
+                // Buffer cheio: descarta em vez de bloquear o atendimento
+                descartados.increment();
+                return;
+            } else {
+                posicao = cauda.get();
+            }
+        }
+    }
+
+    private static void escreverContinuamente() {
+        while (true) {
+            if (esvaziar() == 0) {
+                LockSupport.parkNanos(ESPERA_SEM_EVENTOS_NS);
+            }
+        }
+    }
+
+    /**
+     * Consome até MAXIMO_POR_LOTE eventos e os escreve com uma chamada por fluxo
+     * Retorna o número de eventos consumidos.
+     */
+    private static synchronized int esvaziar() {
+        int consumidos = 0;
+        while (consumidos < MAXIMO_POR_LOTE) {
+            int indice = (int) (cabeca & mascara);
+            if (sequencias.get(indice) != cabeca + 1) {
+                break;
+            }
+            formatar(tipos[indice], enderecos[indice], textos[indice], valoresA[indice], valoresB[indice]);
+            enderecos[indice] = null;
+            textos[indice] = null;
+            sequencias.lazySet(indice, cabeca + capacidade);
+            cabeca++;
+            consumidos++;
+        }
+
+        long totalDescartados = descartados.sum();
+        if (totalDescartados != descartadosInformados) {
+            linhasErro.append("[LOG] ").append(totalDescartados - descartadosInformados)
+                    .append(" eventos descartados (buffer cheio)\n");
+            descartadosInformados = totalDescartados;
+        }
+
+        escrever(System.out, linhasSaida);
+        escrever(System.err, linhasErro);
+        return consumidos;
+    }
+
+    private static void escrever(PrintStream destino, StringBuilder linhas) {
+        if (linhas.length() > 0) {
+            destino.print(linhas);
+            destino.flush();
+            linhas.setLength(0);
+        }
+    }
+
+    private static void formatar(int tipo, String endereco, String texto, long a, long b) {
+        switch (tipo) {
+            case NOVO_CLIENTE:
+                linhasSaida.append("[NOVO CLIENTE] Conexão aceita de: ").append(endereco).append('\n');
+                break;
+            case REQUISICAO:
+                linhasSaida.append('[').append(endereco).append("] Requisição: mensagem ").append(a)
+                        .append(" | Persistente: ").append(b != 0).append('\n');
+                break;
+            case LOTE:
+                linhasSaida.append('[').append(endereco).append("] Requisição: lote de ").append(a)
+                        .append(" mensagens | Persistente: ").append(b != 0).append('\n');
+                break;
+            case EXPORTACAO:
+                linhasSaida.append('[').append(endereco).append("] Exportação: ").append(b)
+                        .append(" mensagens a partir de ").append(a).append('\n');
+                break;
+            case PESQUISA:
+                linhasSaida.append('[').append(endereco).append("] Pesquisa: \"").append(texto).append("\" | ");
+                if (a < 0) {
+                    linhasSaida.append("recusada\n");
+                } else {
+                    linhasSaida.append(a).append(" resultados\n");
+                }
+                break;
+            case ASSINATURA:
+                linhasSaida.append('[').append(endereco).append("] Assinatura: ");
+                if (a == 0) {
+                    linhasSaida.append("aleatórias");
+                } else {
+                    linhasSaida.append("sequencial a partir de ").append(a);
+                }
+                if (b == 0) {
+                    linhasSaida.append(" | sem limite de taxa\n");
+                } else {
+                    linhasSaida.append(" | ").append(b).append(" mensagens/s\n");
+                }
+                break;
+            case PROTOCOLO_NEGOCIADO:
+                linhasSaida.append('[').append(endereco).append("] Protocolo negociado: v").append(a).append('\n');
+                break;
+            case CONEXAO_ENCERRADA:
+                linhasSaida.append('[').append(endereco).append("] Conexão encerrada pelo cliente\n");
+                break;
+            case CLIENTE_DESCONECTOU:
+                linhasSaida.append('[').append(endereco).append("] Cliente desconectou\n");
+                break;
+            case CONEXAO_RECUSADA:
+                linhasSaida.append("[RECUSADA] Servidor lotado, conexão recusada de: ").append(endereco).append('\n');
+                break;
+            case TEMPO_ESGOTADO:
+                linhasSaida.append('[').append(endereco).append("] Conexão encerrada por tempo esgotado\n");
+                break;
+            case COMANDO_DESCONHECIDO:
+                linhasErro.append('[').append(endereco).append("] Comando desconhecido: opcode ").append(a)
+                        .append(" | versão ").append(b).append('\n');
+                break;
+            case LOTE_INVALIDO:
+                linhasErro.append('[').append(endereco).append("] Lote inválido: ").append(a)
+                        .append(" mensagens\n");
+                break;
+            default:
+                linhasErro.append('[').append(endereco).append("] Erro: ").append(texto).append('\n');
+                break;
+        }
+    }
+
+    private static int lerNivel(String nome) {
+        switch (nome) {
+            case "desligado":
+                return NIVEL_DESLIGADO;
+            case "erro":
+                return NIVEL_ERRO;
+            case "conexao":
+                return NIVEL_CONEXAO;
+            case "requisicao":
+                return NIVEL_REQUISICAO;
+            default:
+                throw new IllegalArgumentException("Nível de log desconhecido: " + nome +
+                        " (use desligado, erro, conexao ou requisicao)");
+        }
+    }
+}
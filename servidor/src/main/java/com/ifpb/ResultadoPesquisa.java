@@ -0,0 +1,64 @@
+package com.ifpb;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Resultado do comando PESQUISAR: números das mensagens encontradas e as
+ * respostas correspondentes ("OK|mensagem"), das mais relevantes para as menos.
+ * Se o servidor recusou a pesquisa, não há resultados e erro() traz o motivo.
+ */
+public final class ResultadoPesquisa {
+    private final int[] numeros;
+    private final String[] respostas;
+    private final String erro;
+
+    private ResultadoPesquisa(int[] numeros, String[] respostas, String erro) {
+        this.numeros = numeros;
+        this.respostas = respostas;
+        this.erro = erro;
+    }
+
+    /**
+     * Lê a resposta: [quantidade:int] e [numero:int][quadro] por resultado, ou [-1][quadro de erro]
+     */
+    static ResultadoPesquisa ler(DataInputStream entrada, int versao) throws IOException {
+        int quantidade = entrada.readInt();
+        if (quantidade == Protocolo.PESQUISA_ERRO) {
+            return new ResultadoPesquisa(new int[0], new String[0], lerResposta(entrada, versao));
+        }
+        int[] numeros = new int[quantidade];
+        String[] respostas = new String[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            numeros[i] = entrada.readInt();
+            respostas[i] = lerResposta(entrada, versao);
+        }
+        return new ResultadoPesquisa(numeros, respostas, null);
+    }
+
+    private static String lerResposta(DataInputStream entrada, int versao) throws IOException {
+        if (versao == Protocolo.PROTOCOLO_V2) {
+            return Protocolo.lerRespostaV2(entrada);
+        }
+        return entrada.readUTF().trim(); // Remove espaços de preenchimento
+    }
+
+    public int quantidade() {
+        return numeros.length;
+    }
+
+    public int numero(int posicao) {
+        return numeros[posicao];
+    }
+
+    public String resposta(int posicao) {
+        return respostas[posicao];
+    }
+
+    /**
+     * "ERRO|motivo" se a pesquisa foi recusada, ou null
+     */
+    public String erro() {
+        return erro;
+    }
+}
@@ -0,0 +1,39 @@
+package com.ifpb;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Estratégia de escolha da mensagem aleatória (número 0)
+ * Nenhuma implementação aloca objetos ou disputa estado compartilhado por
+ * requisição, então o caminho aleatório escala com o número de núcleos.
+ */
+interface SelecaoAleatoria {
+
+    /**
+     * Uniforme e sem estado: usa o gerador próprio de cada thread
+     * (ThreadLocalRandom), sem a semente global disputada por new Random()
+     */
+    SelecaoAleatoria UNIFORME = total -> ThreadLocalRandom.current().nextInt(total);
+
+    /**
+     * Retorna o índice (0 a total - 1) da próxima mensagem aleatória
+     * Lança IllegalArgumentException se o banco está vazio (total <= 0).
+     */
+    int proximoIndice(int total);
+
+    /**
+     * Cria a seleção para uma nova conexão: "uniforme" (padrão) ou
+     * "sem-repeticao" (cursor embaralhado próprio da conexão)
+     */
+    static SelecaoAleatoria criar(String modo) {
+        switch (modo) {
+            case "uniforme":
+                return UNIFORME;
+            case "sem-repeticao":
+                return new CursorEmbaralhado();
+            default:
+                throw new IllegalArgumentException("Seleção aleatória desconhecida: " + modo +
+                        " (use uniforme ou sem-repeticao)");
+        }
+    }
+}
@@ -0,0 +1,688 @@
+package com.ifpb;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Servidor de Mensagens - Laboratório de Sockets
+ * Implementa um servidor multithread que gerencia um banco de mensagens
+ * e atende requisições de clientes via TCP/IP
+ */
+public class ServidorMensagens {
+    private static final int TAMANHO_POOL_PADRAO = 200; // Threads do modo "pool"
+    // Limite do writeUTF (65535 bytes) com até 3 bytes por caractere
+    private static final int TAMANHO_MENSAGEM_MAXIMO = 65535 / 3;
+    // Tamanho fixo das mensagens do protocolo; o main aplica tamanho.mensagem
+    private static int tamanhoMensagem = 150;
+    private static final AtomicReference<SnapshotBanco> snapshot = new AtomicReference<>();
+    // Seleção da mensagem aleatória: "uniforme" (padrão) ou "sem-repeticao" (por conexão)
+    private static String modoAleatoria = "uniforme";
+
+    public static void main(String[] args) {
+        // Configura encoding UTF-8 para o console
+        try {
+            System.setOut(new PrintStream(System.out, true, StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            System.err.println("Aviso: Não foi possível configurar UTF-8");
+        }// Configura encoding UTF-8 para o console
+        try {
+            System.setOut(new PrintStream(System.out, true, StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            System.err.println("Aviso: Não foi possível configurar UTF-8");
+        }
+
+        // Opções --chave=valor têm prioridade sobre -D, ambiente e mensagens.properties
+        String armazenamento;
+        String arquivoMensagens;
+        int porta;
+        int aceitadores;
+        String modo;
+        Executor executor;
+        try {
+            args = Configuracao.carregar(args);
+            // Modo de execução: "threads" (padrão, uma thread por conexão), "pool" (pool
+            // limitado de threads), "virtual" (uma virtual thread por conexão, JDK 21+)
+            // ou "nio" (event loop)
+            modo = args.length > 0 ? args[0] : "threads";
+            if (args.length > 2) {
+                throw new IllegalArgumentException("Argumento inesperado: " + args[2] + " (use [modo] [tamanhoPool])");
+            }
+            int tamanhoPool = args.length > 1 ? lerTamanhoPool(args[1]) : TAMANHO_POOL_PADRAO;
+            executor = modo.equals("nio") ? null : criarExecutor(modo, tamanhoPool);
+            porta = Configuracao.inteiro("porta");
+            tamanhoMensagem = Configuracao.inteiro("tamanho.mensagem");
+            if (tamanhoMensagem < 1 || tamanhoMensagem > TAMANHO_MENSAGEM_MAXIMO) {
+                throw new IllegalArgumentException("tamanho.mensagem deve estar entre 1 e " + TAMANHO_MENSAGEM_MAXIMO);
+            }
+            // Threads de accept; com SO_REUSEPORT, cada uma tem seu próprio socket na porta
+            aceitadores = Math.max(1, Configuracao.inteiro("aceitadores"));
+            arquivoMensagens = Configuracao.texto("arquivo");
+            // Armazenamento: "memoria" (padrão) ou "mapeado" (FileChannel.map + índice)
+            armazenamento = Configuracao.texto("armazenamento");
+            modoAleatoria = Configuracao.texto("aleatoria");
+            SelecaoAleatoria.criar(modoAleatoria); // Valida o modo antes de aceitar conexões
+            System.out.println(Configuracao.descrever());
+            System.out.println();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Erro de configuração: " + e.getMessage());
+            return;
+        }
+        carregarMensagens(arquivoMensagens, armazenamento);
+
+        // Recarrega o banco sempre que o arquivo for alterado, sem derrubar conexões
+        new MonitorArquivo(arquivoMensagens,
+                () -> recarregarMensagens(arquivoMensagens, armazenamento)).iniciar();
+        ServidorMetricas.iniciar(Configuracao.inteiro("metricas.porta"));
+        ServidorUdp.iniciar(Configuracao.texto("udp.interface"), Configuracao.inteiro("udp.porta"));
+
+        if (modo.equals("nio")) {
+            try {
+                new ServidorNio(porta, Runtime.getRuntime().availableProcessors(), aceitadores).executar();
+            } catch (IOException e) {
+                System.err.println("Erro no servidor: " + e.getMessage());
+            }
+            return;
+        }
+
+        try {
+            List<ServerSocket> sockets = PortaCompartilhada.abrirSockets(porta, aceitadores);
+            System.out.println("=== SERVIDOR DE MENSAGENS ===");
+            System.out.println("Servidor iniciado na porta " + porta);
+            System.out.println("Modo de execução: " + modo);
+            System.out.println("Aceitadores: " + PortaCompartilhada.descrever(aceitadores, sockets.size()));
+            System.out.println("Opções de socket: " + OpcoesSocket.descrever());
+            System.out.println("Total de mensagens: " + snapshot.get().banco.total());
+            System.out.println("Máximo de conexões: " + ControleAdmissao.MAXIMO_CONEXOES);
+            System.out.println("Aguardando conexões...\n");
+
+            // Os aceitadores extras rodam em threads próprias; o primeiro usa a thread atual
+            for (int i = 1; i < aceitadores; i++) {
+                ServerSocket serverSocket = sockets.get(i % sockets.size());
+                Thread aceitador = new Thread(() -> aceitarConexoes(serverSocket, executor), "aceitador-" + i);
+                aceitador.start();
+            }
+            aceitarConexoes(sockets.get(0), executor);
+        } catch (IOException e) {
+            System.err.println("Erro no servidor: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tamanho do pool passado como segundo argumento
+     */
+    private static int lerTamanhoPool(String argumento) {
+        try {
+            int tamanho = Integer.parseInt(argumento.trim());
+            if (tamanho >= 1) {
+                return tamanho;
+            }
+        } catch (NumberFormatException e) {
+            // Cai na mensagem abaixo
+        }
+        throw new IllegalArgumentException("Tamanho do pool inválido: \"" + argumento +
+                "\" (esperado inteiro a partir de 1)");
+    }
+
+    /**
+     * Laço de accept de um aceitador: admite a conexão e a entrega ao executor
+     */
+    private static void aceitarConexoes(ServerSocket serverSocket, Executor executor) {
+        while (true) {
+            Socket clienteSocket;
+            try {
+                clienteSocket = serverSocket.accept();
+            } catch (IOException e) {
+                System.err.println("Erro no servidor: " + e.getMessage());
+                return;
+            }
+            if (!ControleAdmissao.admitir()) {
+                recusarConexao(clienteSocket);
+                continue;
+            }
+            try {
+                OpcoesSocket.configurar(clienteSocket);
+            } catch (IOException e) {
+                // O cliente desistiu entre o accept e a configuração; a falha aparece no atendimento
+            }
+            Metricas.conexaoAberta();
+            RegistroEventos.novoCliente(clienteSocket.getInetAddress().getHostAddress());
+
+            // Entrega o atendimento do cliente ao executor do modo escolhido
+            executor.execute(new AtendimentoCliente(clienteSocket));
+        }
+    }
+
+    /**
+     * Envia o quadro de servidor lotado e fecha a conexão, sem criar atendimento
+     */
+    private static void recusarConexao(Socket socket) {
+        String enderecoCliente = socket.getInetAddress().getHostAddress();
+        try (socket) {
+            socket.getOutputStream().write(Protocolo.quadroServidorLotado());
+        } catch (IOException e) {
+            // O cliente já desistiu; não há o que avisar
+        }
+        Metricas.conexaoRecusada();
+        RegistroEventos.conexaoRecusada(enderecoCliente);
+    }
+
+    /**
+     * Cria o executor que roda os AtendimentoCliente de acordo com o modo
+     */
+    static Executor criarExecutor(String modo, int tamanhoPool) {
+        switch (modo) {
+            case "threads":
+                return tarefa -> new Thread(tarefa).start();
+            case "pool":
+                return Executors.newFixedThreadPool(tamanhoPool);
+            case "virtual":
+                return criarExecutorVirtual();
+            default:
+                throw new IllegalArgumentException("Modo desconhecido: " + modo +
+                        " (use threads, pool, virtual ou nio)");
+        }
+    }
+
+    /**
+     * Obtém Executors.newVirtualThreadPerTaskExecutor() por reflexão, para que o
+     * projeto continue compilando com JDK 17 e use virtual threads quando rodar no 21+
+     */
+    private static Executor criarExecutorVirtual() {
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Virtual threads exigem JDK 21+ (atual: " +
+                    Runtime.version() + ")");
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /**
+     * Carrega as mensagens de um arquivo texto no armazenamento escolhido
+     */
+    static void carregarMensagens(String nomeArquivo, String armazenamento) {
+        try {
+            snapshot.set(SnapshotBanco.carregar(nomeArquivo, armazenamento, 1));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Erro ao carregar mensagens: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Constrói um novo snapshot do banco e o publica por troca atômica
+     * As requisições em andamento continuam usando o snapshot anterior.
+     * Se a carga falhar, o snapshot atual é mantido.
+     */
+    static void recarregarMensagens(String nomeArquivo, String armazenamento) {
+        try {
+            snapshot.get().conferirSubstituicao(nomeArquivo);
+            SnapshotBanco novo = SnapshotBanco.carregar(nomeArquivo, armazenamento,
+                    snapshot.get().versao + 1);
+            snapshot.getAndSet(novo).aposentar();
+            System.out.println("[BANCO] Mensagens recarregadas: versão " + novo.versao +
+                    " | Total de mensagens: " + novo.banco.total());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[BANCO] Erro ao recarregar mensagens, mantendo versão " +
+                    snapshot.get().versao + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cria a seleção aleatória de uma nova conexão, conforme o modo configurado
+     */
+    static SelecaoAleatoria novaSelecaoAleatoria() {
+        return SelecaoAleatoria.criar(modoAleatoria);
+    }
+
+    /**
+     * Versão do snapshot do banco em uso
+     */
+    static long versaoBanco() {
+        return snapshot.get().versao;
+    }
+
+    /**
+     * Total de mensagens do snapshot atual
+     */
+    static int totalMensagens() {
+        return snapshot.get().banco.total();
+    }
+
+    /**
+     * Resposta do comando ESTADO: versão, checksum, total e instante da carga do snapshot atual
+     */
+    static byte[] respostaEstado() {
+        SnapshotBanco atual = snapshot.get();
+        return Protocolo.respostaEstado(atual.versao, atual.checksum, atual.banco.total(), atual.carregadoEm);
+    }
+
+    /**
+     * Prepara a resposta do comando EXPORTAR com o arquivo de exportação do
+     * snapshot atual. Cada exportação consome uma ficha do limite de taxa.
+     */
+    static ArquivoExportacao.Envio prepararExportacao(int inicio, int quantidade, long checksumConhecido,
+                                                      ControleAdmissao.BaldeFichas balde) {
+        SnapshotBanco atual = snapshot.get();
+        if (!ControleAdmissao.permitir(balde, 1)) {
+            return ArquivoExportacao.Envio.semCorpo(Protocolo.EXPORTACAO_LIMITE_TAXA, atual.versao,
+                    Protocolo.SEM_CHECKSUM, atual.banco.total());
+        }
+        // Se o snapshot for substituído entre a leitura e a reserva, usa o novo
+        while (atual.exportacao != null && !atual.exportacao.adquirir()) {
+            atual = snapshot.get();
+        }
+        ArquivoExportacao.Envio envio = atual.exportacao == null
+                ? ArquivoExportacao.Envio.semCorpo(Protocolo.EXPORTACAO_INDISPONIVEL, atual.versao,
+                        Protocolo.SEM_CHECKSUM, atual.banco.total())
+                : atual.exportacao.responder(inicio, quantidade, checksumConhecido, atual.versao);
+        Metricas.exportacao(envio.cabecalho[0]);
+        return envio;
+    }
+
+    /**
+     * Processa a requisição do cliente e retorna a mensagem apropriada
+     */
+    static String processarRequisicao(int numero) {
+        return processarRequisicao(snapshot.get().banco, numero, SelecaoAleatoria.UNIFORME);
+    }
+
+    private static String processarRequisicao(BancoMensagens banco, int numero, SelecaoAleatoria selecao) {
+        int totalMensagens = banco.total();
+
+        // Caso 1: Mensagem aleatória (número 0)
+        if (numero == 0) {
+            int indiceAleatorio = selecao.proximoIndice(totalMensagens);
+            return "OK|" + banco.mensagem(indiceAleatorio);
+        }
+
+        // Caso 2: Número válido (1 a M)
+        if (numero >= 1 && numero <= totalMensagens) {
+            return "OK|" + banco.mensagem(numero - 1);
+        }
+
+        // Caso 3: Número inválido
+        return "ERRO|Número inválido! Use valores de 0 a " + totalMensagens +
+                " (0 = aleatória)";
+    }
+
+    /**
+     * Retorna o quadro codificado da resposta na versão de protocolo da conexão.
+     * No armazenamento em memória o quadro vem pré-codificado, sem alocar por
+     * requisição; no mapeado ele é codificado sob demanda para não manter o
+     * banco inteiro no heap.
+     */
+    static byte[] obterQuadroResposta(int numero, int versaoProtocolo) {
+        return obterQuadroResposta(numero, versaoProtocolo, SelecaoAleatoria.UNIFORME);
+    }
+
+    /**
+     * Como obterQuadroResposta, escolhendo a mensagem aleatória com a seleção da conexão
+     */
+    static byte[] obterQuadroResposta(int numero, int versaoProtocolo, SelecaoAleatoria selecao) {
+        long inicio = System.nanoTime();
+        SnapshotBanco atual = snapshot.get();
+        byte[] quadro = quadroResposta(atual, numero, versaoProtocolo, selecao);
+        Metricas.resposta(numero, atual.banco.total(), System.nanoTime() - inicio);
+        return quadro;
+    }
+
+    private static byte[] quadroResposta(SnapshotBanco atual, int numero, int versaoProtocolo,
+                                         SelecaoAleatoria selecao) {
+        if (atual.cacheRespostas != null) {
+            return atual.cacheRespostas.quadro(numero, versaoProtocolo, selecao);
+        }
+        String resposta = processarRequisicao(atual.banco, numero, selecao);
+        return versaoProtocolo == Protocolo.PROTOCOLO_V2
+                ? Protocolo.codificarRespostaV2(resposta)
+                : codificarResposta(resposta);
+    }
+
+    /**
+     * Resposta completa do comando PESQUISAR na versão de protocolo da conexão:
+     * [quantidade:int] e [numero:int][quadro] por resultado, ou [-1][quadro de erro].
+     * Números e quadros vêm do mesmo snapshot. Cada pesquisa consome uma ficha do limite de taxa.
+     */
+    static byte[] respostaPesquisa(int k, String consulta, String autor, int versaoProtocolo,
+                                   ControleAdmissao.BaldeFichas balde) {
+        SnapshotBanco atual = snapshot.get();
+        int[] numeros = null;
+        byte[] erro;
+        if (k < 1 || k > IndicePesquisa.MAXIMO_RESULTADOS) {
+            erro = Protocolo.quadroPesquisaInvalida(versaoProtocolo);
+        } else if (!ControleAdmissao.permitir(balde, 1)) {
+            erro = Protocolo.quadroLimiteTaxa(versaoProtocolo);
+        } else if (atual.indicePesquisa == null) {
+            erro = Protocolo.quadroPesquisaDesativada(versaoProtocolo);
+        } else {
+            numeros = atual.indicePesquisa.pesquisar(consulta, autor, k);
+            erro = numeros == null ? Protocolo.quadroPesquisaVazia(versaoProtocolo) : null;
+        }
+        Metricas.pesquisa(numeros != null);
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(
+                4 + (numeros == null ? 1 : numeros.length) * (4 + tamanhoMensagem + 2));
+        try (DataOutputStream saida = new DataOutputStream(buffer)) {
+            if (numeros == null) {
+                saida.writeInt(Protocolo.PESQUISA_ERRO);
+                saida.write(erro);
+            } else {
+                saida.writeInt(numeros.length);
+                for (int numero : numeros) {
+                    saida.writeInt(numero);
+                    saida.write(quadroResposta(atual, numero, versaoProtocolo, SelecaoAleatoria.UNIFORME));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    static int tamanhoMensagem() {
+        return tamanhoMensagem;
+    }
+
+    /**
+     * Garante que a resposta tenha tamanho fixo de tamanhoMensagem caracteres
+     */
+    static String formatarResposta(String resposta) {
+        if (resposta.length() > tamanhoMensagem) {
+            return resposta.substring(0, tamanhoMensagem);
+        }
+        return String.format("%-" + tamanhoMensagem + "s", resposta);
+    }
+
+    /**
+     * Codifica a resposta no mesmo quadro gerado por writeUTF:
+     * [tamanho:unsigned short][bytes UTF-8 modificado]
+     */
+    static byte[] codificarResposta(String resposta) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(tamanhoMensagem + 2);
+        try (DataOutputStream saida = new DataOutputStream(buffer)) {
+            saida.writeUTF(formatarResposta(resposta));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Classe interna que implementa o atendimento de cada cliente em uma thread separada
+     */
+    static class AtendimentoCliente implements Runnable {
+        private Socket socket;
+        private EntradaBufferizada recebidos;
+        private DataInputStream entrada;
+        private DataOutputStream saida;
+        private String enderecoCliente;
+        private int versaoProtocolo = Protocolo.PROTOCOLO_V1;
+        private final SelecaoAleatoria selecaoAleatoria = novaSelecaoAleatoria();
+        private ControleAdmissao.BaldeFichas balde; // null: sem limite de taxa
+        private final ControleAdmissao.PrazoEscrita prazoEscrita;
+        private boolean entregue = false; // Conexão passada ao DistribuidorAssinaturas
+
+        public AtendimentoCliente(Socket socket) {
+            this.socket = socket;
+            this.enderecoCliente = socket.getInetAddress().getHostAddress();
+            this.prazoEscrita = new ControleAdmissao.PrazoEscrita(socket);
+        }
+
+        @Override
+        public void run() {
+            // Reservado aqui, e não no construtor, para ser sempre devolvido no finally
+            balde = ControleAdmissao.reservarBalde(enderecoCliente);
+            try {
+                // Uma leitura no socket traz a requisição inteira e as que estiverem em pipeline atrás dela
+                recebidos = new EntradaBufferizada(socket.getInputStream());
+                entrada = new DataInputStream(recebidos);
+                // Saída bufferizada: respostas de requisições em pipeline saem com um único flush;
+                // cada escrita no socket tem prazo, já que o SO_TIMEOUT só vale para leituras
+                saida = new DataOutputStream(new BufferedOutputStream(
+                        Metricas.contarBytes(prazoEscrita.envolver(socket.getOutputStream()))));
+
+                boolean conexaoPersistente = true;
+
+                while (conexaoPersistente) {
+                    // Protocolo de requisição:
+                    // [numeroMensagem:int][persistente:boolean]
+                    // ou [MARCADOR_COMANDO:int][opcode:byte][versao:byte][corpo]
+                    // Entre requisições vale o tempo ocioso; dentro de uma, o de leitura
+                    socket.setSoTimeout(ControleAdmissao.TEMPO_OCIOSO_MS);
+                    int numeroMensagem = entrada.readInt();
+                    socket.setSoTimeout(ControleAdmissao.TEMPO_LEITURA_MS);
+
+                    if (numeroMensagem == Protocolo.MARCADOR_COMANDO) {
+                        conexaoPersistente = processarComando();
+                        if (entregue) {
+                            return;
+                        }
+                    } else {
+                        boolean manterConexao = entrada.readBoolean();
+
+                        RegistroEventos.requisicao(enderecoCliente, numeroMensagem, manterConexao);
+
+                        saida.write(ControleAdmissao.permitir(balde, 1)
+                                ? obterQuadroResposta(numeroMensagem, versaoProtocolo, selecaoAleatoria)
+                                : Protocolo.quadroLimiteTaxa(versaoProtocolo));
+                        conexaoPersistente = manterConexao;
+                    }
+
+                    // Só descarrega quando não há outra requisição já recebida aguardando
+                    if (!conexaoPersistente || recebidos.bufferizados() == 0) {
+                        saida.flush();
+                    }
+                }
+
+                RegistroEventos.conexaoEncerrada(enderecoCliente);
+                socket.close();
+
+            } catch (EOFException e) {
+                RegistroEventos.clienteDesconectou(enderecoCliente);
+            } catch (SocketTimeoutException e) {
+                Metricas.tempoEsgotado();
+                RegistroEventos.tempoEsgotado(enderecoCliente);
+            } catch (IOException e) {
+                if (prazoEscrita.esgotado()) {
+                    // Já contado pela vigia, que fechou o socket
+                    RegistroEventos.tempoEsgotado(enderecoCliente);
+                } else {
+                    RegistroEventos.erro(enderecoCliente, e.getMessage());
+                }
+            } finally {
+                prazoEscrita.encerrar();
+                ControleAdmissao.soltarBalde(enderecoCliente, balde);
+                if (!entregue) {
+                    Metricas.conexaoFechada();
+                    ControleAdmissao.liberar();
+                    try {
+                        if (socket != null && !socket.isClosed()) {
+                            socket.close();
+                        }
+                    } catch (IOException e) {
+                        RegistroEventos.erro(enderecoCliente, "ao fechar socket: " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        /**
+         * Processa um comando estendido e retorna se a conexão deve continuar aberta
+         */
+        private boolean processarComando() throws IOException {
+            byte opcode = entrada.readByte();
+            byte versao = entrada.readByte();
+
+            if (opcode == Protocolo.COMANDO_LOTE && versao == Protocolo.VERSAO_LOTE) {
+                return processarLote();
+            }
+            if (opcode == Protocolo.COMANDO_EXPORTAR && versao == Protocolo.VERSAO_EXPORTAR) {
+                return processarExportacao();
+            }
+            if (opcode == Protocolo.COMANDO_PESQUISAR && versao == Protocolo.VERSAO_PESQUISAR) {
+                return processarPesquisa();
+            }
+            if (opcode == Protocolo.COMANDO_ASSINAR && versao == Protocolo.VERSAO_ASSINAR) {
+                return processarAssinatura();
+            }
+            if (opcode == Protocolo.COMANDO_ESTADO && versao == Protocolo.VERSAO_ESTADO) {
+                boolean manterConexao = entrada.readBoolean();
+                saida.write(respostaEstado());
+                return manterConexao;
+            }
+            if (opcode == Protocolo.COMANDO_NEGOCIAR && versao == Protocolo.VERSAO_NEGOCIAR) {
+                versaoProtocolo = Protocolo.versaoAceita(entrada.readByte());
+                saida.writeByte(versaoProtocolo);
+                RegistroEventos.protocoloNegociado(enderecoCliente, versaoProtocolo);
+                return true;
+            }
+
+            RegistroEventos.comandoDesconhecido(enderecoCliente, opcode, versao);
+            Metricas.erroDecodificacao();
+            saida.write(Protocolo.quadroComandoInvalido(versaoProtocolo));
+            return false;
+        }
+
+        /**
+         * Lote: [quantidade:int][numeros:int x quantidade][persistente:boolean]
+         * Responde [quantidade:int] seguido dos quadros, descarregados de uma vez
+         */
+        private boolean processarLote() throws IOException {
+            int quantidade = entrada.readInt();
+
+            if (quantidade < 1 || quantidade > Protocolo.MAXIMO_LOTE) {
+                RegistroEventos.loteInvalido(enderecoCliente, quantidade);
+                Metricas.erroDecodificacao();
+                saida.writeInt(1);
+                saida.write(Protocolo.quadroLoteInvalido(versaoProtocolo));
+                return false;
+            }
+
+            // Acima do limite de taxa, o lote inteiro é recusado item a item
+            boolean permitido = ControleAdmissao.permitir(balde, quantidade);
+            saida.writeInt(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                int numero = entrada.readInt();
+                saida.write(permitido
+                        ? obterQuadroResposta(numero, versaoProtocolo, selecaoAleatoria)
+                        : Protocolo.quadroLimiteTaxa(versaoProtocolo));
+            }
+            boolean manterConexao = entrada.readBoolean();
+
+            RegistroEventos.lote(enderecoCliente, quantidade, manterConexao);
+            return manterConexao;
+        }
+
+        /**
+         * Pesquisa: [k:int][consulta:texto][autor:texto][persistente:boolean]
+         * Textos acima do limite fecham a conexão, como um lote inválido
+         */
+        private boolean processarPesquisa() throws IOException {
+            int k = entrada.readInt();
+            String consulta = lerTexto();
+            String autor = consulta == null ? null : lerTexto();
+            if (autor == null) {
+                Metricas.erroDecodificacao();
+                saida.writeInt(Protocolo.PESQUISA_ERRO);
+                saida.write(Protocolo.quadroPesquisaInvalida(versaoProtocolo));
+                return false;
+            }
+            boolean manterConexao = entrada.readBoolean();
+
+            byte[] resposta = respostaPesquisa(k, consulta, autor, versaoProtocolo, balde);
+            RegistroEventos.pesquisa(enderecoCliente, consulta, autor, ByteBuffer.wrap(resposta).getInt());
+            saida.write(resposta);
+            return manterConexao;
+        }
+
+        /**
+         * Assinatura: [modo:byte][inicio:int][taxa:int][creditos:int]
+         * A conexão é entregue ao DistribuidorAssinaturas, com os bytes que já
+         * vieram atrás do comando, e esta thread fica livre para outro cliente
+         */
+        private boolean processarAssinatura() throws IOException {
+            byte modo = entrada.readByte();
+            int inicio = entrada.readInt();
+            int taxa = entrada.readInt();
+            int creditos = entrada.readInt();
+
+            // Sockets aceitos por um ServerSocketChannel têm canal; sem ele não há como entregar a conexão
+            SocketChannel canal = socket.getChannel();
+            if (canal == null || !DistribuidorAssinaturas.valida(modo, inicio, taxa, creditos)) {
+                Metricas.erroDecodificacao();
+                saida.writeInt(Protocolo.FIM_ASSINATURA);
+                saida.write(Protocolo.quadroAssinaturaInvalida(versaoProtocolo));
+                return false;
+            }
+            saida.flush();
+            DistribuidorAssinaturas.entregar(new DistribuidorAssinaturas.Assinatura(canal, versaoProtocolo,
+                    selecaoAleatoria, modo, inicio, taxa, creditos), recebidos.retirarBufferizados(), new byte[0]);
+            entregue = true;
+            return false;
+        }
+
+        /**
+         * Texto da pesquisa ([tamanho:unsigned short][UTF-8]), ou null se excede o limite
+         */
+        private String lerTexto() throws IOException {
+            int tamanho = entrada.readUnsignedShort();
+            if (tamanho > Protocolo.MAXIMO_TEXTO_PESQUISA) {
+                return null;
+            }
+            byte[] bytes = new byte[tamanho];
+            entrada.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Exportação: [inicio:int][quantidade:int][checksumConhecido:long][persistente:boolean]
+         * O cabeçalho sai pelo buffer; o corpo vai do arquivo de exportação direto
+         * para o canal do socket com transferTo, sem cópia no heap
+         */
+        private boolean processarExportacao() throws IOException {
+            int inicio = entrada.readInt();
+            int quantidade = entrada.readInt();
+            long checksumConhecido = entrada.readLong();
+            boolean manterConexao = entrada.readBoolean();
+
+            ArquivoExportacao.Envio envio = prepararExportacao(inicio, quantidade, checksumConhecido, balde);
+            RegistroEventos.exportacao(enderecoCliente, inicio, envio.quantidade);
+            saida.write(envio.cabecalho);
+            if (envio.concluido()) {
+                return manterConexao;
+            }
+            saida.flush();
+            try {
+                // Sockets aceitos por um ServerSocketChannel têm canal; sem ele, a cópia passa pelo heap
+                SocketChannel canal = socket.getChannel();
+                if (canal != null) {
+                    while (!envio.concluido()) {
+                        prazoEscrita.iniciar();
+                        try {
+                            Metricas.bytesEscritos(envio.transferir(canal));
+                        } finally {
+                            prazoEscrita.concluir();
+                        }
+                    }
+                } else {
+                    WritableByteChannel destino = Channels.newChannel(saida);
+                    while (!envio.concluido()) {
+                        envio.transferir(destino);
+                    }
+                }
+            } finally {
+                envio.liberar();
+            }
+            return manterConexao;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ifpb;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Porta de administração com as métricas do servidor
+ * Atende GET /metrics no formato texto do Prometheus, apenas na interface
+ * local e com uma única thread própria, fora do caminho do atendimento.
+ * Desativada por padrão: nenhuma porta fixa é ocupada (a 9100, por exemplo,
+ * é a do node_exporter) sem que metricas.porta seja configurada.
+ */
+final class ServidorMetricas {
+    private static final String TIPO_CONTEUDO = "text/plain; version=0.0.4; charset=utf-8";
+
+    private ServidorMetricas() {
+    }
+
+    /**
+     * Inicia o servidor HTTP de métricas na porta indicada (0 desativa)
+     */
+    static void iniciar(int porta) {
+        if (porta == 0) {
+            return;
+        }
+        try {
+            HttpServer servidor = HttpServer.create(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), porta), 0);
+            servidor.createContext("/metrics", troca -> {
+                try (troca) {
+                    if (!troca.getRequestMethod().equals("GET")) {
+                        troca.sendResponseHeaders(405, -1);
+                        return;
+                    }
+                    byte[] corpo = Metricas.exportar().getBytes(StandardCharsets.UTF_8);
+                    troca.getResponseHeaders().set("Content-Type", TIPO_CONTEUDO);
+                    troca.sendResponseHeaders(200, corpo.length);
+                    try (OutputStream saida = troca.getResponseBody()) {
+                        saida.write(corpo);
+                    }
+                }
+            });
+            servidor.setExecutor(Executors.newSingleThreadExecutor(tarefa -> {
+                Thread thread = new Thread(tarefa, "metricas");
+                thread.setDaemon(true);
+                return thread;
+            }));
+            servidor.start();
+            System.out.println("Métricas em http://localhost:" + porta + "/metrics");
+        } catch (IOException e) {
+            System.err.println("Aviso: não foi possível abrir a porta de métricas " + porta +
+                    ": " + e.getMessage());
+        }
+    }
+}
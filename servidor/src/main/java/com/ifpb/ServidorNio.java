@@ -0,0 +1,588 @@
+package com.ifpb;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servidor de Mensagens NIO - Laboratório de Sockets
+ * Atende os clientes com poucos event loops (Selector) em vez de uma thread
+ * por conexão, mantendo exatamente o mesmo protocolo do ServidorMensagens
+ */
+public class ServidorNio {
+    private static final int TAMANHO_BUFFER_LEITURA = 512;
+    // Quadro v1 (writeUTF de tamanho.mensagem caracteres): 2 bytes de tamanho + até 3
+    // bytes por caractere. Quadros v2 maiores que o espaço livre vão para o buffer de transbordo.
+    static final int TAMANHO_MAXIMO_QUADRO = 2 + ServidorMensagens.tamanhoMensagem() * 3;
+    static final int TAMANHO_BUFFER_ESCRITA = Math.max(16 * 1024, 4 + TAMANHO_MAXIMO_QUADRO);
+    // Intervalo em que cada loop procura conexões com tempo ocioso ou de leitura esgotado
+    private static final long INTERVALO_VARREDURA_MS = 1000;
+
+    private final int porta;
+    private final int aceitadores;
+    private final LoopEventos[] loops;
+    private final AtomicInteger proximoLoop = new AtomicInteger();
+
+    public ServidorNio(int porta, int numeroLoops) throws IOException {
+        this(porta, numeroLoops, 1);
+    }
+
+    /**
+     * @param aceitadores threads de accept (com SO_REUSEPORT, cada uma com seu canal)
+     */
+    public ServidorNio(int porta, int numeroLoops, int aceitadores) throws IOException {
+        this.porta = porta;
+        this.aceitadores = Math.max(1, aceitadores);
+        this.loops = new LoopEventos[Math.max(1, numeroLoops)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new LoopEventos(i);
+        }
+    }
+
+    /**
+     * Inicia os event loops e os aceitadores; o primeiro aceitador usa a thread atual
+     */
+    public void executar() throws IOException {
+        for (LoopEventos loop : loops) {
+            Thread thread = new Thread(loop, "nio-loop-" + loop.id);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        List<ServerSocketChannel> canais = PortaCompartilhada.abrirCanais(porta, aceitadores);
+
+        System.out.println("=== SERVIDOR DE MENSAGENS (NIO) ===");
+        System.out.println("Servidor iniciado na porta " + porta);
+        System.out.println("Event loops: " + loops.length);
+        System.out.println("Opções de socket: " + OpcoesSocket.descrever());
+        System.out.println("Aceitadores: " + PortaCompartilhada.descrever(aceitadores, canais.size()));
+        System.out.println("Máximo de conexões: " + ControleAdmissao.MAXIMO_CONEXOES);
+        System.out.println("Aguardando conexões...\n");
+
+        for (int i = 1; i < aceitadores; i++) {
+            ServerSocketChannel canal = canais.get(i % canais.size());
+            Thread aceitador = new Thread(() -> {
+                try {
+                    aceitarConexoes(canal);
+                } catch (IOException e) {
+                    System.err.println("Erro no servidor: " + e.getMessage());
+                }
+            }, "aceitador-" + i);
+            aceitador.start();
+        }
+        aceitarConexoes(canais.get(0));
+    }
+
+    /**
+     * Laço de accept de um aceitador: admite a conexão e a entrega a um loop
+     */
+    private void aceitarConexoes(ServerSocketChannel serverChannel) throws IOException {
+        while (true) {
+            SocketChannel cliente = serverChannel.accept();
+            if (!ControleAdmissao.admitir()) {
+                recusar(cliente);
+                continue;
+            }
+            Metricas.conexaoAberta();
+            RegistroEventos.novoCliente(cliente.socket().getInetAddress().getHostAddress());
+
+            // Distribui as conexões entre os loops em round-robin
+            loops[Math.floorMod(proximoLoop.getAndIncrement(), loops.length)].registrar(cliente);
+        }
+    }
+
+    /**
+     * Envia o quadro de servidor lotado (o canal ainda está em modo bloqueante) e fecha
+     */
+    private static void recusar(SocketChannel cliente) {
+        String enderecoCliente = cliente.socket().getInetAddress().getHostAddress();
+        try (cliente) {
+            cliente.write(ByteBuffer.wrap(Protocolo.quadroServidorLotado()));
+        } catch (IOException e) {
+            // O cliente já desistiu; não há o que avisar
+        }
+        Metricas.conexaoRecusada();
+        RegistroEventos.conexaoRecusada(enderecoCliente);
+    }
+
+    /**
+     * Event loop responsável por um subconjunto das conexões
+     */
+    static class LoopEventos implements Runnable {
+        private final int id;
+        private final Selector selector;
+        private final Queue<SocketChannel> pendentes = new ConcurrentLinkedQueue<>();
+
+        LoopEventos(int id) throws IOException {
+            this.id = id;
+            this.selector = Selector.open();
+        }
+
+        /**
+         * Entrega uma nova conexão ao loop (chamado pela thread de accept)
+         */
+        void registrar(SocketChannel cliente) {
+            pendentes.add(cliente);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            long proximaVarredura = System.nanoTime() + INTERVALO_VARREDURA_MS * 1_000_000;
+            while (true) {
+                try {
+                    selector.select(INTERVALO_VARREDURA_MS);
+                    registrarPendentes();
+
+                    Iterator<SelectionKey> chaves = selector.selectedKeys().iterator();
+                    while (chaves.hasNext()) {
+                        SelectionKey chave = chaves.next();
+                        chaves.remove();
+                        Conexao conexao = (Conexao) chave.attachment();
+
+                        try {
+                            if (chave.isValid() && chave.isReadable()) {
+                                conexao.ler();
+                            }
+                            if (chave.isValid() && chave.isWritable()) {
+                                conexao.escrever();
+                            }
+                        } catch (IOException e) {
+                            RegistroEventos.erro(conexao.enderecoCliente, e.getMessage());
+                            conexao.fechar();
+                        } catch (RuntimeException e) {
+                            // Falha no atendimento de uma conexão não pode derrubar o loop das demais
+                            RegistroEventos.erro(conexao.enderecoCliente, "falha no atendimento: " + e);
+                            conexao.fechar();
+                        }
+                    }
+
+                    long agora = System.nanoTime();
+                    if (agora - proximaVarredura >= 0) {
+                        fecharEsgotadas(agora);
+                        proximaVarredura = agora + INTERVALO_VARREDURA_MS * 1_000_000;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Erro no event loop " + id + ": " + e);
+                }
+            }
+        }
+
+        /**
+         * Fecha as conexões ociosas ou com requisição/escrita parada além do tempo limite
+         */
+        private void fecharEsgotadas(long agora) {
+            for (SelectionKey chave : selector.keys()) {
+                Conexao conexao = (Conexao) chave.attachment();
+                if (conexao != null && chave.isValid() && conexao.tempoEsgotado(agora)) {
+                    Metricas.tempoEsgotado();
+                    RegistroEventos.tempoEsgotado(conexao.enderecoCliente);
+                    conexao.fechar();
+                }
+            }
+        }
+
+        private void registrarPendentes() {
+            SocketChannel cliente;
+            while ((cliente = pendentes.poll()) != null) {
+                try {
+                    cliente.configureBlocking(false);
+                    OpcoesSocket.configurar(cliente);
+                    SelectionKey chave = cliente.register(selector, SelectionKey.OP_READ);
+                    chave.attach(new Conexao(cliente, chave));
+                } catch (IOException e) {
+                    System.err.println("Erro ao registrar cliente: " + e.getMessage());
+                    Metricas.conexaoFechada();
+                    ControleAdmissao.liberar();
+                    try {
+                        cliente.close();
+                    } catch (IOException ignorada) {
+                        // Conexão já está perdida
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Estado de uma conexão: decodifica as requisições incrementalmente e
+     * acumula as respostas em um buffer de escrita reaproveitado
+     */
+    static class Conexao {
+        private final SocketChannel canal;
+        private final SelectionKey chave;
+        private final String enderecoCliente;
+        private final ByteBuffer leitura = ByteBuffer.allocate(TAMANHO_BUFFER_LEITURA);
+        private final ByteBuffer escrita = ByteBuffer.allocate(TAMANHO_BUFFER_ESCRITA);
+        private ByteBuffer transbordo; // Quadro que não coube no buffer de escrita
+        private ArquivoExportacao.Envio exportacao; // Corpo de exportação por transferir
+        private boolean encerrar = false;
+        private boolean entregue = false; // Conexão passada ao DistribuidorAssinaturas
+        private int versaoProtocolo = Protocolo.PROTOCOLO_V1;
+        private final SelecaoAleatoria selecaoAleatoria = ServidorMensagens.novaSelecaoAleatoria();
+        private int loteQuantidade = 0;
+        private int loteRestante = -1; // -1: nenhum lote em andamento
+        private boolean loteLimitado = false; // Lote recusado pelo limite de taxa
+        private final ControleAdmissao.BaldeFichas balde; // null: sem limite de taxa
+        private long ultimaAtividade = System.nanoTime();
+
+        Conexao(SocketChannel canal, SelectionKey chave) {
+            this.canal = canal;
+            this.chave = chave;
+            this.enderecoCliente = canal.socket().getInetAddress().getHostAddress();
+            this.balde = ControleAdmissao.reservarBalde(enderecoCliente);
+        }
+
+        void ler() throws IOException {
+            int lidos = canal.read(leitura);
+            if (lidos == -1) {
+                RegistroEventos.clienteDesconectou(enderecoCliente);
+                fechar();
+                return;
+            }
+            if (lidos > 0) {
+                ultimaAtividade = System.nanoTime();
+            }
+
+            processarRequisicoes();
+            escrever();
+        }
+
+        /**
+         * Decodifica as requisições completas já recebidas, enquanto houver
+         * espaço no buffer de escrita para as respostas. Lotes são processados
+         * item a item, então podem ser maiores que os buffers da conexão.
+         */
+        private void processarRequisicoes() {
+            leitura.flip();
+            while (!encerrar && transbordo == null && exportacao == null &&
+                    escrita.remaining() >= 4 + TAMANHO_MAXIMO_QUADRO) {
+                if (loteRestante > 0) {
+                    // Próximo número do lote em andamento
+                    if (leitura.remaining() < 4) {
+                        break;
+                    }
+                    int numero = leitura.getInt();
+                    enfileirar(loteLimitado
+                            ? Protocolo.quadroLimiteTaxa(versaoProtocolo)
+                            : ServidorMensagens.obterQuadroResposta(numero, versaoProtocolo, selecaoAleatoria));
+                    loteRestante--;
+                } else if (loteRestante == 0) {
+                    // Flag de persistência que fecha o lote
+                    if (leitura.remaining() < 1) {
+                        break;
+                    }
+                    boolean manterConexao = leitura.get() != 0;
+                    RegistroEventos.lote(enderecoCliente, loteQuantidade, manterConexao);
+                    loteRestante = -1;
+                    encerrar = !manterConexao;
+                } else if (!decodificarRequisicao()) {
+                    break;
+                }
+            }
+            // Mantém bytes de uma requisição parcial para a próxima leitura
+            leitura.compact();
+        }
+
+        /**
+         * Decodifica uma requisição simples ou o cabeçalho de um comando estendido
+         * Retorna false se ainda não chegaram bytes suficientes.
+         */
+        private boolean decodificarRequisicao() {
+            int inicio = leitura.position();
+            if (leitura.remaining() < 4) {
+                return false;
+            }
+            int numeroMensagem = leitura.getInt(inicio);
+
+            if (numeroMensagem != Protocolo.MARCADOR_COMANDO) {
+                if (leitura.remaining() < Protocolo.TAMANHO_REQUISICAO) {
+                    return false;
+                }
+                leitura.position(inicio + 4);
+                boolean manterConexao = leitura.get() != 0;
+
+                RegistroEventos.requisicao(enderecoCliente, numeroMensagem, manterConexao);
+
+                // Copia o quadro pré-codificado, sem alocação por requisição
+                enfileirar(ControleAdmissao.permitir(balde, 1)
+                        ? ServidorMensagens.obterQuadroResposta(numeroMensagem, versaoProtocolo, selecaoAleatoria)
+                        : Protocolo.quadroLimiteTaxa(versaoProtocolo));
+                encerrar = !manterConexao;
+                return true;
+            }
+
+            if (leitura.remaining() < Protocolo.TAMANHO_CABECALHO_COMANDO) {
+                return false;
+            }
+            byte opcode = leitura.get(inicio + 4);
+            byte versao = leitura.get(inicio + 5);
+
+            if (opcode == Protocolo.COMANDO_NEGOCIAR && versao == Protocolo.VERSAO_NEGOCIAR) {
+                if (leitura.remaining() < Protocolo.TAMANHO_CABECALHO_COMANDO + 1) {
+                    return false;
+                }
+                leitura.position(inicio + Protocolo.TAMANHO_CABECALHO_COMANDO);
+                versaoProtocolo = Protocolo.versaoAceita(leitura.get());
+                escrita.put((byte) versaoProtocolo);
+                RegistroEventos.protocoloNegociado(enderecoCliente, versaoProtocolo);
+                return true;
+            }
+
+            if (opcode == Protocolo.COMANDO_ASSINAR && versao == Protocolo.VERSAO_ASSINAR) {
+                if (leitura.remaining() < Protocolo.TAMANHO_CABECALHO_COMANDO + Protocolo.TAMANHO_CORPO_ASSINAR) {
+                    return false;
+                }
+                leitura.position(inicio + Protocolo.TAMANHO_CABECALHO_COMANDO);
+                byte modo = leitura.get();
+                int primeira = leitura.getInt();
+                int taxa = leitura.getInt();
+                int creditos = leitura.getInt();
+                if (!DistribuidorAssinaturas.valida(modo, primeira, taxa, creditos)) {
+                    Metricas.erroDecodificacao();
+                    escrita.putInt(Protocolo.FIM_ASSINATURA);
+                    enfileirar(Protocolo.quadroAssinaturaInvalida(versaoProtocolo));
+                    encerrar = true;
+                    return true;
+                }
+                entregarAssinatura(new DistribuidorAssinaturas.Assinatura(canal, versaoProtocolo, selecaoAleatoria,
+                        modo, primeira, taxa, creditos));
+                return false;
+            }
+
+            if (opcode == Protocolo.COMANDO_ESTADO && versao == Protocolo.VERSAO_ESTADO) {
+                if (leitura.remaining() < Protocolo.TAMANHO_CABECALHO_COMANDO + 1) {
+                    return false;
+                }
+                leitura.position(inicio + Protocolo.TAMANHO_CABECALHO_COMANDO);
+                encerrar = leitura.get() == 0;
+                enfileirar(ServidorMensagens.respostaEstado());
+                return true;
+            }
+
+            if (opcode == Protocolo.COMANDO_EXPORTAR && versao == Protocolo.VERSAO_EXPORTAR) {
+                if (leitura.remaining() < Protocolo.TAMANHO_CABECALHO_COMANDO + Protocolo.TAMANHO_CORPO_EXPORTAR) {
+                    return false;
+                }
+                leitura.position(inicio + Protocolo.TAMANHO_CABECALHO_COMANDO);
+                int primeira = leitura.getInt();
+                int quantidade = leitura.getInt();
+                long checksumConhecido = leitura.getLong();
+                boolean manterConexao = leitura.get() != 0;
+
+                ArquivoExportacao.Envio envio = ServidorMensagens.prepararExportacao(
+                        primeira, quantidade, checksumConhecido, balde);
+                RegistroEventos.exportacao(enderecoCliente, primeira, envio.quantidade);
+                enfileirar(envio.cabecalho);
+                if (!envio.concluido()) {
+                    // O corpo vai do arquivo para o socket depois do que já está no buffer
+                    exportacao = envio;
+                }
+                encerrar = !manterConexao;
+                return true;
+            }
+
+            if (opcode == Protocolo.COMANDO_PESQUISAR && versao == Protocolo.VERSAO_PESQUISAR) {
+                return decodificarPesquisa(inicio);
+            }
+
+            if (opcode != Protocolo.COMANDO_LOTE || versao != Protocolo.VERSAO_LOTE) {
+                RegistroEventos.comandoDesconhecido(enderecoCliente, opcode, versao);
+                Metricas.erroDecodificacao();
+                leitura.position(inicio + Protocolo.TAMANHO_CABECALHO_COMANDO);
+                enfileirar(Protocolo.quadroComandoInvalido(versaoProtocolo));
+                encerrar = true;
+                return true;
+            }
+
+            if (leitura.remaining() < Protocolo.TAMANHO_CABECALHO_COMANDO + 4) {
+                return false;
+            }
+            leitura.position(inicio + Protocolo.TAMANHO_CABECALHO_COMANDO);
+            int quantidade = leitura.getInt();
+
+            if (quantidade < 1 || quantidade > Protocolo.MAXIMO_LOTE) {
+                RegistroEventos.loteInvalido(enderecoCliente, quantidade);
+                Metricas.erroDecodificacao();
+                escrita.putInt(1);
+                enfileirar(Protocolo.quadroLoteInvalido(versaoProtocolo));
+                encerrar = true;
+                return true;
+            }
+
+            escrita.putInt(quantidade);
+            loteQuantidade = quantidade;
+            loteRestante = quantidade;
+            // Acima do limite de taxa, o lote inteiro é recusado item a item
+            loteLimitado = !ControleAdmissao.permitir(balde, quantidade);
+            return true;
+        }
+
+        /**
+         * Passa a conexão ao DistribuidorAssinaturas com os bytes recebidos depois
+         * do comando e as respostas ainda não escritas; este loop deixa de atendê-la
+         */
+        private void entregarAssinatura(DistribuidorAssinaturas.Assinatura assinatura) {
+            byte[] recebidos = new byte[leitura.remaining()];
+            leitura.get(recebidos);
+            escrita.flip();
+            byte[] porEscrever = new byte[escrita.remaining()];
+            escrita.get(porEscrever);
+            escrita.clear();
+            chave.cancel();
+            entregue = true;
+            ControleAdmissao.soltarBalde(enderecoCliente, balde); // A assinatura reserva o seu
+            DistribuidorAssinaturas.entregar(assinatura, recebidos, porEscrever);
+        }
+
+        /**
+         * Pesquisa: [k:int][consulta:texto][autor:texto][persistente:boolean]
+         * Com os textos limitados a MAXIMO_TEXTO_PESQUISA, a requisição inteira
+         * sempre cabe no buffer de leitura. Retorna false se ainda está incompleta.
+         */
+        private boolean decodificarPesquisa(int inicio) {
+            int posicao = inicio + Protocolo.TAMANHO_CABECALHO_COMANDO;
+            int limite = leitura.limit();
+            if (limite - posicao < 6) {
+                return false;
+            }
+            int k = leitura.getInt(posicao);
+            int tamanhoConsulta = leitura.getShort(posicao + 4) & 0xFFFF;
+            int posicaoAutor = posicao + 6 + tamanhoConsulta;
+            if (tamanhoConsulta <= Protocolo.MAXIMO_TEXTO_PESQUISA && limite - posicaoAutor < 2) {
+                return false;
+            }
+            int tamanhoAutor = tamanhoConsulta <= Protocolo.MAXIMO_TEXTO_PESQUISA
+                    ? leitura.getShort(posicaoAutor) & 0xFFFF : 0;
+            if (tamanhoConsulta > Protocolo.MAXIMO_TEXTO_PESQUISA || tamanhoAutor > Protocolo.MAXIMO_TEXTO_PESQUISA) {
+                Metricas.erroDecodificacao();
+                leitura.position(posicao);
+                escrita.putInt(Protocolo.PESQUISA_ERRO);
+                enfileirar(Protocolo.quadroPesquisaInvalida(versaoProtocolo));
+                encerrar = true;
+                return true;
+            }
+            int fim = posicaoAutor + 2 + tamanhoAutor + 1;
+            if (limite < fim) {
+                return false;
+            }
+            String consulta = new String(leitura.array(), posicao + 6, tamanhoConsulta, StandardCharsets.UTF_8);
+            String autor = new String(leitura.array(), posicaoAutor + 2, tamanhoAutor, StandardCharsets.UTF_8);
+            boolean manterConexao = leitura.get(fim - 1) != 0;
+            leitura.position(fim);
+
+            byte[] resposta = ServidorMensagens.respostaPesquisa(k, consulta, autor, versaoProtocolo, balde);
+            RegistroEventos.pesquisa(enderecoCliente, consulta, autor, ByteBuffer.wrap(resposta).getInt());
+            enfileirar(resposta);
+            encerrar = !manterConexao;
+            return true;
+        }
+
+        /**
+         * Sem nada pendente vale o tempo ocioso; com requisição parcial, lote em
+         * andamento ou resposta por escrever, vale o tempo de leitura
+         */
+        boolean tempoEsgotado(long agora) {
+            boolean ociosa = leitura.position() == 0 && loteRestante < 0 &&
+                    escrita.position() == 0 && transbordo == null && exportacao == null;
+            long limiteMs = ociosa ? ControleAdmissao.TEMPO_OCIOSO_MS : ControleAdmissao.TEMPO_LEITURA_MS;
+            return agora - ultimaAtividade > limiteMs * 1_000_000L;
+        }
+
+        /**
+         * Copia o quadro para o buffer de escrita ou, se não couber, guarda-o
+         * para ser escrito logo depois do conteúdo atual do buffer
+         */
+        private void enfileirar(byte[] quadro) {
+            if (quadro.length <= escrita.remaining()) {
+                escrita.put(quadro);
+            } else {
+                transbordo = ByteBuffer.wrap(quadro);
+            }
+        }
+
+        void escrever() throws IOException {
+            if (entregue) {
+                return;
+            }
+            while (true) {
+                escrita.flip();
+                int escritos = canal.write(escrita);
+                Metricas.bytesEscritos(escritos);
+                if (escritos > 0) {
+                    ultimaAtividade = System.nanoTime();
+                }
+                boolean pendente = escrita.hasRemaining();
+                escrita.compact();
+
+                if (!pendente && transbordo != null) {
+                    Metricas.bytesEscritos(canal.write(transbordo));
+                    pendente = transbordo.hasRemaining();
+                    if (!pendente) {
+                        transbordo = null;
+                    }
+                }
+
+                if (!pendente && transbordo == null && exportacao != null) {
+                    // Zero cópia: do cache de páginas do arquivo direto para o socket
+                    long enviados = exportacao.transferir(canal);
+                    Metricas.bytesEscritos(enviados);
+                    if (enviados > 0) {
+                        ultimaAtividade = System.nanoTime();
+                    }
+                    pendente = !exportacao.concluido();
+                    if (!pendente) {
+                        exportacao = null;
+                    }
+                }
+
+                if (pendente) {
+                    // Buffer do socket cheio: aguarda OP_WRITE sem ler novas requisições
+                    chave.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+
+                // Requisições que ficaram aguardando espaço no buffer de escrita
+                if (encerrar || leitura.position() == 0) {
+                    break;
+                }
+                processarRequisicoes();
+                // Uma resposta maior que o buffer vai para o transbordo: ainda há o que escrever
+                if (escrita.position() == 0 && transbordo == null && exportacao == null) {
+                    break;
+                }
+            }
+
+            if (encerrar) {
+                RegistroEventos.conexaoEncerrada(enderecoCliente);
+                fechar();
+            } else {
+                chave.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        void fechar() {
+            if (exportacao != null) {
+                exportacao.liberar();
+                exportacao = null;
+            }
+            if (entregue || !canal.isOpen()) {
+                return;
+            }
+            Metricas.conexaoFechada();
+            ControleAdmissao.liberar();
+            ControleAdmissao.soltarBalde(enderecoCliente, balde);
+            chave.cancel();
+            try {
+                canal.close();
+            } catch (IOException e) {
+                RegistroEventos.erro(enderecoCliente, "ao fechar socket: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.ifpb;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Atendimento de consultas avulsas por UDP, sem conexão
+ * Por TCP não persistente, cada consulta paga o handshake, uma thread (no modo
+ * threads) e o encerramento da conexão para trocar 5 bytes por uma resposta de
+ * ~150. Aqui a consulta e a resposta são um datagrama cada (ver Protocolo):
+ *   requisição: [id:int][numeroMensagem:int]
+ *   resposta:   [id:int][quadro de resposta v2]
+ *
+ * O id é escolhido pelo cliente e devolvido como veio, para que ele descarte
+ * respostas atrasadas de tentativas anteriores. Não há entrega garantida: o
+ * cliente repete a consulta se a resposta não chegar no prazo, o que é seguro
+ * porque consultas não alteram o servidor. Datagramas de outro tamanho são
+ * ignorados sem resposta, e o limite de taxa por IP vale como no TCP.
+ *
+ * Como a origem de um datagrama pode ser forjada, o servidor responderia a
+ * quem o remetente quisesse (reflexão). Por isso o canal escuta apenas na
+ * interface de loopback, a menos que udp.interface indique outra (vazio = todas).
+ *
+ * As threads de atendimento compartilham um DatagramChannel bloqueante, e
+ * cada uma reaproveita seus próprios buffers.
+ */
+final class ServidorUdp {
+    private ServidorUdp() {
+    }
+
+    /**
+     * Abre o canal na interface e porta indicadas (porta 0 desativa, interface
+     * vazia escuta em todas) e inicia uma thread de atendimento por núcleo
+     */
+    static void iniciar(String interfaceRede, int porta) {
+        if (porta == 0) {
+            return;
+        }
+        try {
+            DatagramChannel canal = DatagramChannel.open();
+            canal.bind(interfaceRede.isEmpty()
+                    ? new InetSocketAddress(porta)
+                    : new InetSocketAddress(interfaceRede, porta));
+            int threads = Runtime.getRuntime().availableProcessors();
+            for (int i = 0; i < threads; i++) {
+                Thread thread = new Thread(() -> atender(canal), "udp-" + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
+            System.out.println("Consultas UDP em " + canal.getLocalAddress());
+        } catch (IOException e) {
+            System.err.println("Aviso: não foi possível abrir a porta UDP " + porta + ": " + e.getMessage());
+        }
+    }
+
+    private static void atender(DatagramChannel canal) {
+        // Um byte a mais que a requisição, para reconhecer datagramas maiores
+        ByteBuffer requisicao = ByteBuffer.allocateDirect(Protocolo.TAMANHO_REQUISICAO_UDP + 1);
+        ByteBuffer resposta = ByteBuffer.allocateDirect(Protocolo.MAXIMO_DATAGRAMA);
+
+        while (true) {
+            SocketAddress origem;
+            try {
+                requisicao.clear();
+                origem = canal.receive(requisicao);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                RegistroEventos.erro("udp", e.getMessage());
+                continue;
+            }
+            if (requisicao.position() != Protocolo.TAMANHO_REQUISICAO_UDP) {
+                Metricas.erroDecodificacao();
+                continue;
+            }
+            int id = requisicao.getInt(0);
+            int numeroMensagem = requisicao.getInt(4);
+            String enderecoCliente = ((InetSocketAddress) origem).getAddress().getHostAddress();
+            RegistroEventos.requisicao(enderecoCliente, numeroMensagem, false);
+
+            try {
+                byte[] quadro = ControleAdmissao.permitir(ControleAdmissao.baldeDo(enderecoCliente), 1)
+                        ? ServidorMensagens.obterQuadroResposta(numeroMensagem, Protocolo.PROTOCOLO_V2)
+                        : Protocolo.quadroLimiteTaxa(Protocolo.PROTOCOLO_V2);
+                resposta.clear();
+                resposta.putInt(id).put(quadro).flip();
+                Metricas.bytesEscritos(canal.send(resposta, origem));
+            } catch (IOException | RuntimeException e) {
+                // Falha ao montar a resposta, mensagem maior que um datagrama ou
+                // cliente inalcançável: só essa resposta se perde
+                RegistroEventos.erro(enderecoCliente, "resposta UDP: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.ifpb;
+
+import java.io.IOException;
+
+/**
+ * Snapshot imutável do banco de mensagens
+ * Reúne o armazenamento, o cache de respostas e a versão da carga. O servidor
+ * publica um novo snapshot por troca atômica de referência, então cada
+ * requisição lê um único snapshot e sempre vê lista e total consistentes.
+ * O índice de pesquisa, o arquivo de exportação e o checksum são gerados
+ * junto, na thread da carga e antes da publicação, para que nenhuma
+ * requisição (nem um event loop do modo nio) pague a varredura do banco.
+ *
+ * A versão é local a cada processo; para comparar nós diferentes valem o
+ * checksum do conteúdo e o instante da carga.
+ */
+final class SnapshotBanco {
+    private static final boolean EXPORTACAO_ATIVA = Configuracao.booleano("exportacao");
+    private static final boolean PESQUISA_ATIVA = Configuracao.booleano("pesquisa");
+
+    final BancoMensagens banco;
+    final CacheRespostas cacheRespostas; // Nulo no armazenamento mapeado
+    final ArquivoExportacao exportacao; // Nulo com exportacao=false
+    final IndicePesquisa indicePesquisa; // Nulo com pesquisa=false
+    final long versao;
+    final long checksum; // CRC32C do conteúdo, igual em todos os nós com o mesmo arquivo
+    final long carregadoEm; // Instante da carga, em ms desde a época
+
+    private SnapshotBanco(BancoMensagens banco, CacheRespostas cacheRespostas, long versao) throws IOException {
+        this.banco = banco;
+        this.cacheRespostas = cacheRespostas;
+        this.exportacao = EXPORTACAO_ATIVA ? ArquivoExportacao.gerar(banco) : null;
+        this.checksum = exportacao != null ? exportacao.checksum() : ArquivoExportacao.calcularChecksum(banco);
+        this.indicePesquisa = PESQUISA_ATIVA ? IndicePesquisa.construir(banco) : null;
+        this.versao = versao;
+        this.carregadoEm = System.currentTimeMillis();
+    }
+
+    /**
+     * Carrega o arquivo no armazenamento escolhido: "memoria" ou "mapeado"
+     */
+    static SnapshotBanco carregar(String nomeArquivo, String armazenamento, long versao) throws IOException {
+        if (armazenamento.equals("mapeado")) {
+            return new SnapshotBanco(BancoMapeado.abrir(nomeArquivo), null, versao);
+        }
+        BancoMensagens banco = BancoMemoria.carregar(nomeArquivo);
+        // Pré-codifica todas as respostas uma única vez
+        return new SnapshotBanco(banco, new CacheRespostas(banco), versao);
+    }
+
+    /**
+     * Confere, antes de uma recarga, se o arquivo pode substituir o desta carga
+     * (no armazenamento mapeado, só por renomeação atômica)
+     */
+    void conferirSubstituicao(String nomeArquivo) throws IOException {
+        if (banco instanceof BancoMapeado) {
+            ((BancoMapeado) banco).conferirSubstituicao(nomeArquivo);
+        }
+    }
+
+    /**
+     * Chamado quando um snapshot mais novo é publicado: o arquivo de exportação
+     * é apagado assim que terminarem os envios que ainda o usam
+     */
+    void aposentar() {
+        if (exportacao != null) {
+            exportacao.liberar();
+        }
+    }
+}
@@ -0,0 +1,790 @@
+package com.ifpb;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Script de Teste Automatizado para o Serviço de Mensagens
+ * Realiza uma bateria de testes para validar o funcionamento do servidor
+ */
+public class TesteAutomatizado {
+    private static final String HOST = Configuracao.texto("host");
+    private static final int PORTA = Configuracao.inteiro("porta");
+    private static int testesPassados = 0;
+    private static int testesTotal = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== BATERIA DE TESTES DO SERVIÇO DE MENSAGENS ===\n");
+
+        testarMensagemEspecifica();
+        testarMensagemAleatoria();
+        testarNumeroInvalido();
+        testarNumeroNegativo();
+        testarNumeroZero();
+        testarConexaoPersistente();
+        testarMultiplasConexoes();
+        testarLote();
+        testarPipeline();
+        testarClienteAssincrono();
+        testarCacheProximo();
+        testarExportacao();
+        testarPesquisa();
+        testarClienteDistribuido();
+        testarConsultaUdp();
+        testarAssinatura();
+        testarPesquisaLongaNio();
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("RESULTADO FINAL: " + testesPassados + "/" + testesTotal + " testes passaram");
+        System.out.println("=".repeat(60));
+    }
+
+    private static void testarMensagemEspecifica() {
+        System.out.println("[TESTE 1] Mensagem Específica (número 1)");
+        testesTotal++;
+
+        try (Socket socket = new Socket(HOST, PORTA);
+             DataOutputStream saida = new DataOutputStream(socket.getOutputStream());
+             DataInputStream entrada = new DataInputStream(socket.getInputStream())) {
+
+            saida.writeInt(1);
+            saida.writeBoolean(false);
+            saida.flush();
+
+            String resposta = entrada.readUTF().trim();
+
+            if (resposta.startsWith("OK|")) {
+                System.out.println("✓ PASSOU - Resposta: " + resposta.substring(0, Math.min(50, resposta.length())) + "...");
+                testesPassados++;
+            } else {
+                System.out.println("✗ FALHOU - Resposta inesperada: " + resposta);
+            }
+
+        } catch (Exception e) {
+            System.out.println("✗ FALHOU - Erro: " + e.getMessage());
+        }
+        System.out.println();
+    }
+
+    private static void testarMensagemAleatoria() {
+        System.out.println("[TESTE 2] Mensagem Aleatória (número 0)");
+        testesTotal++;
+
+        try (Socket socket = new Socket(HOST, PORTA);
+             DataOutputStream saida = new DataOutputStream(socket.getOutputStream());
+             DataInputStream entrada = new DataInputStream(socket.getInputStream())) {
+
+            saida.writeInt(0);
+            saida.writeBoolean(false);
+            saida.flush();
+
+            String resposta = entrada.readUTF().trim();
+
+            if (resposta.startsWith("OK|")) {
+                System.out.println("✓ PASSOU - Mensagem aleatória recebida");
+                testesPassados++;
+            } else {
+                System.out.println("✗ FALHOU - Resposta inesperada: " + resposta);
+            }
+
+        } catch (Exception e) {
+            System.out.println("✗ FALHOU - Erro: " + e.getMessage());
+        }
+        System.out.println();
+    }
+
+    private static void testarNumeroInvalido() {
+        System.out.println("[TESTE 3] Número Inválido (número 999)");
+        testesTotal++;
+
+        try (Socket socket = new Socket(HOST, PORTA);
+             DataOutputStream saida = new DataOutputStream(socket.getOutputStream());
+             DataInputStream entrada = new DataInputStream(socket.getInputStream())) {
+
+            saida.writeInt(999);
+            saida.writeBoolean(false);
+            saida.flush();
+
+            String resposta = entrada.readUTF().trim();
+
+            if (resposta.startsWith("ERRO|")) {
+                System.out.println("✓ PASSOU - Erro detectado corretamente");
+                System.out.println("  Mensagem: " + resposta.substring(5));
+                testesPassados++;
+            } else {
+                System.out.println("✗ FALHOU - Deveria retornar erro: " + resposta);
+            }
+
+        } catch (Exception e) {
+            System.out.println("✗ FALHOU - Erro: " + e.getMessage());
+        }
+        System.out.println();
+    }
+
+    private static void testarNumeroNegativo() {
+        System.out.println("[TESTE 4] Número Negativo (número -5)");
+        testesTotal++;
+
+        try (Socket socket = new Socket(HOST, PORTA);
+             DataOutputStream saida = new DataOutputStream(socket.getOutputStream());
+             DataInputStream entrada = new DataInputStream(socket.getInputStream())) {
+
+            saida.writeInt(-5);
+            saida.writeBoolean(false);
+            saida.flush();
+
+            String resposta = entrada.readUTF().trim();
+
+            if (resposta.startsWith("ERRO|")) {
+                System.out.println("✓ PASSOU - Erro detectado corretamente");
+                testesPassados++;
+            } else {
+                System.out.println("✗ FALHOU - Deveria retornar erro: " + resposta);
+            }
+
+        } catch (Exception e) {
+            System.out.println("✗ FALHOU - Erro: " + e.getMessage());
+        }
+        System.out.println();
+    }
+
+    private static void testarNumeroZero() {
+        System.out.println("[TESTE 5] Consistência de Mensagem Aleatória");
+        testesTotal++;
+        int tentativas = 5;
+        int sucessos = 0;
+
+        for (int i = 0; i < tentativas; i++) {
+            try (Socket socket = new Socket(HOST, PORTA);
+                 DataOutputStream saida = new DataOutputStream(socket.getOutputStream());
+                 DataInputStream entrada = new DataInputStream(socket.getInputStream())) {
+
+                saida.writeInt(0);
+                saida.writeBoolean(false);
+                saida.flush();
+
+                String resposta = entrada.readUTF().trim();
+
+                if (resposta.startsWith("OK|")) {
+                    sucessos++;
+                }
+
+            } catch (Exception e) {
+                // Ignora erros individuais
+            }
+        }
+
+        if (sucessos == tentativas) {
+            System.out.println("✓ PASSOU - Todas as " + tentativas + " requisições aleatórias foram bem-sucedidas");
+            testesPassados++;
+        } else {
+            System.out.println("✗ FALHOU - Apenas " + sucessos + "/" + tentativas + " requisições foram bem-sucedidas");
+        }
+        System.out.println();
+    }
+
+    private static void testarConexaoPersistente() {
+        System.out.println("[TESTE 6] Conexão Persistente (múltiplas requisições)");
+        testesTotal++;
+
+        try (Socket socket = new Socket(HOST, PORTA);
+             DataOutputStream saida = new DataOutputStream(socket.getOutputStream());
+             DataInputStream entrada = new DataInputStream(socket.getInputStream())) {
+
+            // Primeira requisição
+            saida.writeInt(1);
+            saida.writeBoolean(true); // Manter conexão
+            saida.flush();
+            entrada.readUTF();
+
+            // Segunda requisição na mesma conexão
+            saida.writeInt(2);
+            saida.writeBoolean(true);
+            saida.flush();
+            entrada.readUTF();
+
+            // Terceira requisição
+            saida.writeInt(0);
+            saida.writeBoolean(false); // Encerrar conexão
+            saida.flush();
+            String resposta = entrada.readUTF().trim();
+
+            if (resposta.startsWith("OK|")) {
+                System.out.println("✓ PASSOU - 3 requisições na mesma conexão funcionaram corretamente");
+                testesPassados++;
+            } else {
+                System.out.println("✗ FALHOU - Última resposta inesperada: " + resposta);
+            }
+
+        } catch (Exception e) {
+            System.out.println("✗ FALHOU - Erro: " + e.getMessage());
+        }
+        System.out.println();
+    }
+
+    private static void testarMultiplasConexoes() {
+        System.out.println("[TESTE 7] Múltiplas Conexões Simultâneas");
+        testesTotal++;
+
+        Thread[] threads = new Thread[5];
+        final int[] sucessos = {0};
+
+        for (int i = 0; i < 5; i++) {
+            final int id = i + 1;
+            threads[i] = new Thread(() -> {
+                try (Socket socket = new Socket(HOST, PORTA);
+                     DataOutputStream saida = new DataOutputStream(socket.getOutputStream());
+                     DataInputStream entrada = new DataInputStream(socket.getInputStream())) {
+
+                    saida.writeInt(id);
+                    saida.writeBoolean(false);
+                    saida.flush();
+
+                    String resposta = entrada.readUTF().trim();
+
+                    if (resposta.startsWith("OK|")) {
+                        synchronized (sucessos) {
+                            sucessos[0]++;
+                        }
+                    }
+
+                } catch (Exception e) {
+                    // Ignora erros individuais
+                }
+            });
+            threads[i].start();
+        }
+
+        // Aguarda todas as threads
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+
+        if (sucessos[0] == 5) {
+            System.out.println("✓ PASSOU - 5 clientes simultâneos atendidos com sucesso");
+            testesPassados++;
+        } else {
+            System.out.println("✗ FALHOU - Apenas " + sucessos[0] + "/5 clientes foram atendidos");
+        }
+        System.out.println();
+    }
+
+    private static void testarLote() {
+        System.out.println("[TESTE 8] Lote de Mensagens (comando em uma única requisição)");
+        testesTotal++;
+        int quantidade = Protocolo.MAXIMO_LOTE;
+
+        try (Socket socket = new Socket(HOST, PORTA);
+             DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+             DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+
+            saida.writeInt(Protocolo.MARCADOR_COMANDO);
+            saida.writeByte(Protocolo.COMANDO_LOTE);
+            saida.writeByte(Protocolo.VERSAO_LOTE);
+            saida.writeInt(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                saida.writeInt(i % 3 == 0 ? 999 : i % 3); // Intercala erros e mensagens válidas
+            }
+            saida.writeBoolean(false);
+            saida.flush();
+
+            int recebidas = entrada.readInt();
+            int corretas = 0;
+            for (int i = 0; i < recebidas; i++) {
+                String resposta = entrada.readUTF().trim();
+                if (resposta.startsWith(i % 3 == 0 ? "ERRO|" : "OK|")) {
+                    corretas++;
+                }
+            }
+
+            if (recebidas == quantidade && corretas == quantidade) {
+                System.out.println("✓ PASSOU - " + quantidade + " respostas recebidas na ordem correta");
+                testesPassados++;
+            } else {
+                System.out.println("✗ FALHOU - " + corretas + "/" + recebidas + " respostas corretas");
+            }
+
+        } catch (Exception e) {
+            System.out.println("✗ FALHOU - Erro: " + e.getMessage());
+        }
+        System.out.println();
+    }
+
+    private static void testarPipeline() {
+        System.out.println("[TESTE 9] Requisições em Pipeline (sem aguardar respostas)");
+        testesTotal++;
+        int quantidade = 100;
+
+        try (Socket socket = new Socket(HOST, PORTA);
+             DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+             DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+
+            for (int i = 0; i < quantidade; i++) {
+                saida.writeInt(1);
+                saida.writeBoolean(i < quantidade - 1);
+            }
+            saida.flush();
+
+            int sucessos = 0;
+            for (int i = 0; i < quantidade; i++) {
+                if (entrada.readUTF().trim().startsWith("OK|")) {
+                    sucessos++;
+                }
+            }
+
+            if (sucessos == quantidade) {
+                System.out.println("✓ PASSOU - " + quantidade + " requisições em pipeline respondidas");
+                testesPassados++;
+            } else {
+                System.out.println("✗ FALHOU - Apenas " + sucessos + "/" + quantidade + " respostas corretas");
+            }
+
+        } catch (Exception e) {
+            System.out.println("✗ FALHOU - Erro: " + e.getMessage());
+        }
+        System.out.println();
+    }
+
+    private static void testarClienteAssincrono() {
+        System.out.println("[TESTE 10] Cliente Assíncrono (2 conexões em pipeline compartilhadas)");
+        testesTotal++;
+        int quantidade = 2000;
+
+        try (ClienteAssincrono cliente = new ClienteAssincrono(HOST, PORTA, 2, 5000, Protocolo.PROTOCOLO_V2)) {
+            List<CompletableFuture<String>> respostas = new ArrayList<>();
+            for (int i = 0; i < quantidade; i++) {
+                respostas.add(cliente.buscar(i % 4 == 0 ? 999 : i % 4)); // Intercala erros e mensagens válidas
+            }
+            String[] lote = cliente.buscarLote(new int[]{1, 2, 999}).get();
+
+            int corretas = 0;
+            for (int i = 0; i < quantidade; i++) {
+                if (respostas.get(i).get().startsWith(i % 4 == 0 ? "ERRO|" : "OK|")) {
+                    corretas++;
+                }
+            }
+            boolean loteCorreto = lote.length == 3 && lote[0].startsWith("OK|") &&
+                    lote[1].startsWith("OK|") && lote[2].startsWith("ERRO|");
+
+            if (corretas == quantidade && loteCorreto) {
+                System.out.println("✓ PASSOU - " + quantidade + " respostas e um lote recebidos em ordem");
+                testesPassados++;
+            } else {
+                System.out.println("✗ FALHOU - " + corretas + "/" + quantidade + " respostas corretas" +
+                        " | Lote correto: " + loteCorreto);
+            }
+
+        } catch (Exception e) {
+            System.out.println("✗ FALHOU - Erro: " + e.getMessage());
+        }
+        System.out.println();
+    }
+
+    private static void testarCacheProximo() {
+        System.out.println("[TESTE 11] Cache Próximo (repetições atendidas no cliente, aleatória e erros nunca)");
+        testesTotal++;
+        CacheProximo cache = new CacheProximo(100, 60_000);
+
+        try (ClienteAssincrono cliente = new ClienteAssincrono(HOST, PORTA, 1, 5000, Protocolo.PROTOCOLO_V1, cache)) {
+            String primeira = cliente.buscar(1).get();
+            String repetida = cliente.buscar(1).get();
+            cliente.buscar(0).get();
+            cliente.buscar(0).get();
+            // Respostas de erro vão sempre ao servidor
+            String erro = cliente.buscar(999_999).get();
+            String erroRepetido = cliente.buscar(999_999).get();
+
+            if (primeira.equals(repetida) && erro.startsWith("ERRO|") && erroRepetido.startsWith("ERRO|") &&
+                    cache.acertos() == 1 && cache.faltas() == 3 && cache.tamanho() == 1) {
+                System.out.println("✓ PASSOU - " + cache.resumo());
+                testesPassados++;
+            } else {
+                System.out.println("✗ FALHOU - " + cache.resumo());
+            }
+
+        } catch (Exception e) {
+            System.out.println("✗ FALHOU - Erro: " + e.getMessage());
+        }
+        System.out.println();
+    }
+
+    private static void testarExportacao() {
+        System.out.println("[TESTE 12] Exportação do Banco (inteiro, faixa e sem modificação)");
+        testesTotal++;
+        ClienteMensagens cliente = new ClienteMensagens(HOST, PORTA);
+
+        try {
+            cliente.conectar();
+            ClienteMensagens.Exportacao banco = cliente.exportar(1, 0, Protocolo.SEM_CHECKSUM, true);
+            String segunda = cliente.solicitar(2, true);
+            ClienteMensagens.Exportacao faixa = cliente.exportar(2, 2, Protocolo.SEM_CHECKSUM, true);
+            ClienteMensagens.Exportacao repetida = cliente.exportar(1, 0, banco.checksum, true);
+            ClienteMensagens.Exportacao invalida = cliente.exportar(banco.total + 1, 1, Protocolo.SEM_CHECKSUM, false);
+
+            boolean inteiroCorreto = banco.status == Protocolo.EXPORTACAO_DADOS &&
+                    banco.mensagens.length == banco.total && segunda.equals("OK|" + banco.mensagens[1]);
+            boolean faixaCorreta = faixa.status == Protocolo.EXPORTACAO_DADOS && faixa.mensagens.length == 2 &&
+                    faixa.mensagens[0].equals(banco.mensagens[1]) && faixa.mensagens[1].equals(banco.mensagens[2]);
+            boolean naoModificado = repetida.status == Protocolo.EXPORTACAO_NAO_MODIFICADO &&
+                    repetida.mensagens.length == 0;
+
+            if (inteiroCorreto && faixaCorreta && naoModificado &&
+                    invalida.status == Protocolo.EXPORTACAO_FAIXA_INVALIDA) {
+                System.out.println("✓ PASSOU - " + banco.total + " mensagens exportadas | checksum " +
+                        Long.toHexString(banco.checksum) + " reconhecido na segunda exportação");
+                testesPassados++;
+            } else {
+                System.out.println("✗ FALHOU - Inteiro: " + inteiroCorreto + " | Faixa: " + faixaCorreta +
+                        " | Não modificado: " + naoModificado + " | Status da faixa inválida: " + invalida.status);
+            }
+
+        } catch (Exception e) {
+            System.out.println("✗ FALHOU - Erro: " + e.getMessage());
+        } finally {
+            cliente.desconectar();
+        }
+        System.out.println();
+    }
+
+    private static void testarPesquisa() {
+        System.out.println("[TESTE 13] Pesquisa Textual (sem acentos, filtro de autor e erros)");
+        testesTotal++;
+
+        try (ClienteAssincrono cliente = new ClienteAssincrono(HOST, PORTA, 1, 5000, Protocolo.PROTOCOLO_V2)) {
+            ResultadoPesquisa porAutor = cliente.pesquisar("", "SOCRATES", 10).get();
+            ResultadoPesquisa combinada = cliente.pesquisar("reflexão VIDA", "Sócrates", 10).get();
+            ResultadoPesquisa vazia = cliente.pesquisar("de que", "", 10).get();
+            ResultadoPesquisa invalida = cliente.pesquisar("vida", "", 0).get();
+
+            boolean autorCorreto = porAutor.quantidade() > 0;
+            for (int i = 0; i < porAutor.quantidade(); i++) {
+                autorCorreto &= porAutor.resposta(i).endsWith("- Sócrates");
+            }
+            boolean combinadaCorreta = combinada.quantidade() == 1 &&
+                    combinada.resposta(0).contains("reflexão") &&
+                    combinada.resposta(0).equals(cliente.buscar(combinada.numero(0)).get());
+
+            if (autorCorreto && combinadaCorreta && vazia.erro() != null && invalida.erro() != null) {
+                System.out.println("✓ PASSOU - " + porAutor.quantidade() + " mensagens de Sócrates | " +
+                        "mensagem " + combinada.numero(0) + " para \"reflexão vida\"");
+                testesPassados++;
+            } else {
+                System.out.println("✗ FALHOU - Autor: " + autorCorreto + " | Combinada: " + combinadaCorreta +
+                        " | Erro sem termos: " + vazia.erro() + " | Erro com k = 0: " + invalida.erro());
+            }
+
+        } catch (Exception e) {
+            System.out.println("✗ FALHOU - Erro: " + e.getMessage());
+        }
+        System.out.println();
+    }
+
+    private static void testarClienteDistribuido() {
+        System.out.println("[TESTE 14] Cliente Distribuído (um nó fora do ar, repetição e verificação de estado)");
+        testesTotal++;
+
+        try {
+            // Porta livre sem servidor: faz o papel de um nó que caiu
+            int portaFechada;
+            try (ServerSocket reservada = new ServerSocket(0)) {
+                portaFechada = reservada.getLocalPort();
+            }
+            List<String> nos = List.of(HOST + ":" + PORTA, HOST + ":" + portaFechada);
+
+            try (ClienteDistribuido cliente = new ClienteDistribuido(nos, 1, 5000, Protocolo.PROTOCOLO_V2, 60_000)) {
+                // Antes da primeira verificação os dois nós estão no anel
+                int quantidade = 20;
+                String[] individuais = new String[quantidade];
+                int[] numeros = new int[quantidade];
+                AnelConsistente anel = new AnelConsistente(nos);
+                boolean repeticaoEsperada = false;
+                for (int i = 0; i < quantidade; i++) {
+                    numeros[i] = i % 10 + 1;
+                    individuais[i] = cliente.buscar(numeros[i]).get();
+                    repeticaoEsperada |= anel.dono(numeros[i], new boolean[]{true, true}) == 1;
+                }
+                long repeticoes = cliente.repeticoes();
+                String[] lote = cliente.buscarLote(numeros).get();
+
+                cliente.conectar();
+                EstadoNo[] estados = cliente.estados();
+
+                boolean respostasCorretas = Arrays.equals(individuais, lote);
+                for (String resposta : individuais) {
+                    respostasCorretas &= resposta.startsWith("OK|");
+                }
+                if (respostasCorretas && (repeticoes > 0) == repeticaoEsperada && cliente.nosDisponiveis() == 1 &&
+                        estados[0] != null && estados[1] == null) {
+                    System.out.println("✓ PASSOU - " + repeticoes + " requisição repetida no nó ativo | " +
+                            estados[0]);
+                    testesPassados++;
+                } else {
+                    System.out.println("✗ FALHOU - Respostas corretas: " + respostasCorretas + " | Repetições: " +
+                            repeticoes + " | Nós disponíveis: " + cliente.nosDisponiveis());
+                }
+            }
+
+        } catch (Exception e) {
+            System.out.println("✗ FALHOU - Erro: " + e.getMessage());
+        }
+        System.out.println();
+    }
+
+    private static void testarConsultaUdp() {
+        int portaUdp = Configuracao.inteiro("udp.porta");
+        if (portaUdp == 0) {
+            System.out.println("[TESTE 15] Consulta por UDP ignorada (servidor e teste com -Dudp.porta=N)\n");
+            return;
+        }
+        System.out.println("[TESTE 15] Consulta por UDP (mesmas respostas do TCP, datagrama inválido ignorado)");
+        testesTotal++;
+
+        try (ClienteUdp cliente = new ClienteUdp(HOST, portaUdp, 500, 3);
+             ClienteAssincrono clienteTcp = new ClienteAssincrono(HOST, PORTA, 1, 5000, Protocolo.PROTOCOLO_V2);
+             DatagramSocket avulso = new DatagramSocket()) {
+            String valida = cliente.solicitar(2);
+            String invalida = cliente.solicitar(999);
+            String aleatoria = cliente.solicitar(0);
+
+            // Datagrama fora do formato não tem resposta
+            avulso.connect(new InetSocketAddress(HOST, portaUdp));
+            avulso.setSoTimeout(300);
+            avulso.send(new DatagramPacket(new byte[3], 3));
+            boolean ignorado;
+            try {
+                avulso.receive(new DatagramPacket(new byte[64], 64));
+                ignorado = false;
+            } catch (SocketTimeoutException e) {
+                ignorado = true;
+            }
+
+            if (valida.equals(clienteTcp.buscar(2).get()) && invalida.startsWith("ERRO|") &&
+                    aleatoria.startsWith("OK|") && ignorado) {
+                System.out.println("✓ PASSOU - Resposta: " + valida);
+                testesPassados++;
+            } else {
+                System.out.println("✗ FALHOU - Válida: " + valida + " | Inválida: " + invalida +
+                        " | Aleatória: " + aleatoria + " | Datagrama inválido ignorado: " + ignorado);
+            }
+
+        } catch (Exception e) {
+            System.out.println("✗ FALHOU - Erro: " + e.getMessage());
+        }
+        System.out.println();
+    }
+
+    private static void testarAssinatura() {
+        System.out.println("[TESTE 16] Assinatura (banco em sequência, créditos, taxa e pedido inválido)");
+        testesTotal++;
+
+        try (ClienteAssincrono clienteEstado = new ClienteAssincrono(HOST, PORTA, 1, 5000, Protocolo.PROTOCOLO_V2)) {
+            int total = clienteEstado.estado().get().total;
+
+            // Sequencial a partir de 1 com janela de 2: todas as mensagens em ordem e o quadro de fim
+            boolean sequenciaCorreta = true;
+            int recebidas = 0;
+            String fim;
+            try (ClienteAssinatura assinatura = new ClienteAssinatura(HOST, PORTA, ClienteAssinatura.SEQUENCIAL,
+                    1, 0, 2)) {
+                String resposta;
+                while ((resposta = assinatura.proxima()) != null) {
+                    recebidas++;
+                    sequenciaCorreta &= resposta.startsWith("OK|") && assinatura.numero() == recebidas;
+                }
+                fim = assinatura.fim();
+            }
+
+            // Aleatórias a 50 mensagens/s: 10 mensagens levam ao menos ~180 ms
+            long inicio = System.nanoTime();
+            try (ClienteAssinatura assinatura = new ClienteAssinatura(HOST, PORTA, ClienteAssinatura.ALEATORIAS,
+                    0, 50, 4)) {
+                for (int i = 0; i < 10; i++) {
+                    String resposta = assinatura.proxima();
+                    sequenciaCorreta &= resposta != null && resposta.startsWith("OK|");
+                }
+            }
+            long duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+
+            // Sem novos créditos o servidor para depois dos 3 iniciais; com mais 2, envia mais 2
+            int semCredito;
+            int comCredito = 0;
+            String invalida;
+            try (Socket socket = new Socket(HOST, PORTA);
+                 DataOutputStream saida = new DataOutputStream(socket.getOutputStream());
+                 DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                escreverAssinatura(saida, Protocolo.ASSINATURA_ALEATORIA, 0, 3);
+                semCredito = contarRecebidas(socket, entrada);
+                saida.writeInt(2);
+                saida.flush();
+                comCredito = contarRecebidas(socket, entrada);
+            }
+            try (Socket socket = new Socket(HOST, PORTA);
+                 DataOutputStream saida = new DataOutputStream(socket.getOutputStream());
+                 DataInputStream entrada = new DataInputStream(socket.getInputStream())) {
+                escreverAssinatura(saida, Protocolo.ASSINATURA_SEQUENCIAL, total + 1, 1);
+                invalida = entrada.readInt() == Protocolo.FIM_ASSINATURA ? entrada.readUTF().trim() : "";
+            }
+
+            if (sequenciaCorreta && recebidas == total && "OK|Fim do banco".equals(fim) && duracaoMs >= 150 &&
+                    semCredito == 3 && comCredito == 2 && invalida.startsWith("ERRO|")) {
+                System.out.println("✓ PASSOU - " + recebidas + " mensagens em sequência | 10 a 50/s em " +
+                        duracaoMs + " ms | parou sem créditos");
+                testesPassados++;
+            } else {
+                System.out.println("✗ FALHOU - Sequência correta: " + sequenciaCorreta + " | Recebidas: " +
+                        recebidas + "/" + total + " | Fim: " + fim + " | Duração: " + duracaoMs +
+                        " ms | Sem crédito: " + semCredito + " | Com crédito: " + comCredito +
+                        " | Inválida: " + invalida);
+            }
+
+        } catch (Exception e) {
+            System.out.println("✗ FALHOU - Erro: " + e.getMessage());
+        }
+        System.out.println();
+    }
+
+    private static void testarPesquisaLongaNio() {
+        System.out.println("[TESTE 17] Pesquisas em pipeline maiores que o buffer de escrita (servidor nio próprio)");
+        testesTotal++;
+
+        Path diretorio = null;
+        Process servidor = null;
+        try {
+            // Banco próprio: 120 mensagens longas com acentos, para cada resposta com k = 100 passar de 16 KB
+            diretorio = Files.createTempDirectory("teste-pesquisa");
+            Path banco = diretorio.resolve("mensagens.txt");
+            StringBuilder conteudo = new StringBuilder("120\n");
+            for (int i = 1; i <= 120; i++) {
+                conteudo.append("Transbordo ").append(i).append(' ').append("ação ".repeat(24)).append("- Teste\n");
+            }
+            Files.write(banco, conteudo.toString().getBytes(StandardCharsets.UTF_8));
+            int porta;
+            try (ServerSocket livre = new ServerSocket(0)) {
+                porta = livre.getLocalPort();
+            }
+            servidor = iniciarServidorNio(porta, banco);
+
+            int[] quantidades = new int[2];
+            try (Socket socket = new Socket(HOST, porta)) {
+                socket.setSoTimeout(5000);
+                DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                // Negociação e duas pesquisas em uma única escrita, para chegarem juntas ao servidor
+                saida.writeInt(Protocolo.MARCADOR_COMANDO);
+                saida.writeByte(Protocolo.COMANDO_NEGOCIAR);
+                saida.writeByte(Protocolo.VERSAO_NEGOCIAR);
+                saida.writeByte(Protocolo.PROTOCOLO_V2);
+                for (int i = 0; i < 2; i++) {
+                    saida.writeInt(Protocolo.MARCADOR_COMANDO);
+                    saida.writeByte(Protocolo.COMANDO_PESQUISAR);
+                    saida.writeByte(Protocolo.VERSAO_PESQUISAR);
+                    saida.writeInt(100);
+                    Protocolo.escreverTexto(saida, "transbordo");
+                    Protocolo.escreverTexto(saida, "");
+                    saida.writeBoolean(true);
+                }
+                saida.flush();
+                int versao = entrada.readByte();
+                for (int i = 0; i < 2; i++) {
+                    quantidades[i] = ResultadoPesquisa.ler(entrada, versao).quantidade();
+                }
+            }
+
+            if (quantidades[0] == 100 && quantidades[1] == 100) {
+                System.out.println("✓ PASSOU - Duas respostas de 100 mensagens longas recebidas");
+                testesPassados++;
+            } else {
+                System.out.println("✗ FALHOU - Resultados: " + quantidades[0] + " e " + quantidades[1]);
+            }
+
+        } catch (Exception e) {
+            System.out.println("✗ FALHOU - Erro: " + e);
+        } finally {
+            if (servidor != null) {
+                servidor.destroy();
+            }
+            if (diretorio != null) {
+                try (var arquivos = Files.list(diretorio)) {
+                    for (Path arquivo : (Iterable<Path>) arquivos::iterator) {
+                        Files.deleteIfExists(arquivo);
+                    }
+                    Files.deleteIfExists(diretorio);
+                } catch (IOException e) {
+                    // Sobras no diretório temporário não afetam o resultado
+                }
+            }
+        }
+        System.out.println();
+    }
+
+    /**
+     * Inicia um servidor nio separado, com o banco indicado, e espera a porta aceitar conexões
+     */
+    private static Process iniciarServidorNio(int porta, Path banco) throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process processo = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "com.ifpb.ServidorMensagens", "nio",
+                "--porta=" + porta,
+                "--arquivo=" + banco,
+                "--metricas.porta=0",
+                "--udp.porta=0",
+                "--log.nivel=erro")
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        long limite = System.currentTimeMillis() + 10_000;
+        while (true) {
+            try {
+                new Socket(HOST, porta).close();
+                return processo;
+            } catch (IOException e) {
+                if (!processo.isAlive() || System.currentTimeMillis() > limite) {
+                    processo.destroyForcibly();
+                    throw new IOException("O servidor da porta " + porta + " não subiu", e);
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private static void escreverAssinatura(DataOutputStream saida, byte modo, int inicio, int creditos)
+            throws IOException {
+        saida.writeInt(Protocolo.MARCADOR_COMANDO);
+        saida.writeByte(Protocolo.COMANDO_ASSINAR);
+        saida.writeByte(Protocolo.VERSAO_ASSINAR);
+        saida.writeByte(modo);
+        saida.writeInt(inicio);
+        saida.writeInt(0);
+        saida.writeInt(creditos);
+        saida.flush();
+    }
+
+    /**
+     * Conta as mensagens (quadros v1) que chegam até o fluxo ficar 300 ms parado
+     */
+    private static int contarRecebidas(Socket socket, DataInputStream entrada) throws IOException {
+        socket.setSoTimeout(300);
+        int recebidas = 0;
+        try {
+            while (true) {
+                entrada.readInt();
+                entrada.readUTF();
+                recebidas++;
+            }
+        } catch (SocketTimeoutException e) {
+            return recebidas;
+        }
+    }
+}
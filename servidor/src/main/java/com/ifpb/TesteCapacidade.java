@@ -0,0 +1,74 @@
+package com.ifpb;
+
+import java.io.*;
+import java.net.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Teste de Capacidade do Serviço de Mensagens
+ * Abre conexões persistentes até o limite pedido (ou até o servidor falhar)
+ * e informa quantas permanecem atendidas ao mesmo tempo.
+ * Uso: java com.ifpb.TesteCapacidade [conexoes] [timeoutMs]
+ * Para comparar os modos, rode o servidor com o mesmo heap (ex.: -Xmx64m)
+ * em cada modo (threads, pool, virtual, nio).
+ */
+public class TesteCapacidade {
+    private static final String HOST = Configuracao.texto("host");
+    private static final int PORTA = Configuracao.inteiro("porta");
+
+    public static void main(String[] args) {
+        int alvo = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int timeoutMs = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        List<Socket> conexoes = new ArrayList<>();
+        int atendidas = 0;
+        String motivo = "alvo atingido";
+
+        System.out.println("=== TESTE DE CAPACIDADE: " + alvo + " conexões persistentes ===");
+        long inicio = System.nanoTime();
+
+        try {
+            for (int i = 0; i < alvo; i++) {
+                Socket socket = new Socket(HOST, PORTA);
+                conexoes.add(socket);
+                socket.setSoTimeout(timeoutMs);
+
+                DataOutputStream saida = new DataOutputStream(socket.getOutputStream());
+                DataInputStream entrada = new DataInputStream(socket.getInputStream());
+
+                // Cada conexão faz uma requisição e continua aberta
+                saida.writeInt(1);
+                saida.writeBoolean(true);
+                saida.flush();
+
+                if (!entrada.readUTF().trim().startsWith("OK|")) {
+                    motivo = "resposta inesperada";
+                    break;
+                }
+                atendidas++;
+
+                if (atendidas % 1000 == 0) {
+                    System.out.println("  " + atendidas + " conexões atendidas...");
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            motivo = "servidor não respondeu em " + timeoutMs + " ms";
+        } catch (IOException e) {
+            motivo = "erro: " + e.getMessage();
+        }
+
+        long duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Conexões simultâneas atendidas: " + atendidas + " (" + motivo + ")");
+        System.out.println("Tempo total: " + duracaoMs + " ms");
+        System.out.println("=".repeat(60));
+
+        for (Socket socket : conexoes) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ignora erros ao fechar
+            }
+        }
+    }
+}